@@ -4,6 +4,7 @@ public class COEFiles {
 
     public static final String DIR_CURRENCIES = "/currencies/";
     public static final String DIR_MENU       = "/menu/";
+    public static final String DIR_MIGRATION  = "/migration/";
 
     public static final String FILE_COMMANDS   = "commands.yml";
     public static final String FILE_LEADERBOARD = "leaderboard.yml";
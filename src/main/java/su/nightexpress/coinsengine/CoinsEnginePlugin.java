@@ -6,6 +6,7 @@ import su.nightexpress.coinsengine.command.CommandManager;
 import su.nightexpress.coinsengine.config.Config;
 import su.nightexpress.coinsengine.config.Lang;
 import su.nightexpress.coinsengine.config.Perms;
+import su.nightexpress.coinsengine.currency.AsyncOperationService;
 import su.nightexpress.coinsengine.currency.CurrencyManager;
 import su.nightexpress.coinsengine.currency.CurrencyRegistry;
 import su.nightexpress.coinsengine.data.DataHandler;
@@ -23,13 +24,14 @@ import java.util.Optional;
 
 public class CoinsEnginePlugin extends NightPlugin {
 
-    private DataHandler      dataHandler;
-    private UserManager      userManager;
-    private CurrencyRegistry currencyRegistry;
-    private CurrencyManager  currencyManager;
-    private TopManager       topManager;
-    private MigrationManager migrationManager;
-    private CommandManager   commandManager;
+    private DataHandler           dataHandler;
+    private UserManager           userManager;
+    private CurrencyRegistry      currencyRegistry;
+    private CurrencyManager       currencyManager;
+    private AsyncOperationService asyncOperations;
+    private TopManager            topManager;
+    private MigrationManager      migrationManager;
+    private CommandManager        commandManager;
 
     // Custom additions
     private su.nightexpress.coinsengine.sync.RedisSyncManager redisSyncManager;
@@ -55,6 +57,8 @@ public class CoinsEnginePlugin extends NightPlugin {
         this.userManager.setup();
         this.currencyManager.setup();
 
+        this.asyncOperations = new AsyncOperationService(this, this.userManager, Config.DATA_ASYNC_OPERATION_THREADS.get());
+
         if (Config.isTopsEnabled()) {
             this.topManager = new TopManager(this, this.currencyRegistry);
             this.topManager.setup();
@@ -98,6 +102,7 @@ public class CoinsEnginePlugin extends NightPlugin {
         if (this.commandManager != null) this.commandManager.shutdown();
         if (this.topManager != null) this.topManager.shutdown();
         if (this.migrationManager != null) this.migrationManager.shutdown();
+        if (this.asyncOperations != null) this.asyncOperations.shutdown(); // Before users are saved and unloaded.
         if (this.userManager != null) this.userManager.shutdown();
         if (this.dataHandler != null) this.dataHandler.shutdown();
         if (this.currencyManager != null) this.currencyManager.shutdown();
@@ -144,6 +149,11 @@ public class CoinsEnginePlugin extends NightPlugin {
         return Optional.ofNullable(this.migrationManager);
     }
 
+    @NotNull
+    public AsyncOperationService getAsyncOperations() {
+        return this.asyncOperations;
+    }
+
     @NotNull
     public DataHandler getDataHandler() {
         return this.dataHandler;
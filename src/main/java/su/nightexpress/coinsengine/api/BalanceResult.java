@@ -0,0 +1,31 @@
+package su.nightexpress.coinsengine.api;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * Outcome of an asynchronous balance operation.
+ *
+ * @param status Operation status.
+ * @param playerId Player ID.
+ * @param currencyId Currency ID.
+ * @param balance Player's balance after the operation, or 0 if player or currency was not found.
+ */
+public record BalanceResult(@NotNull Status status, @NotNull UUID playerId, @NotNull String currencyId, double balance) {
+
+    public enum Status {
+        /** Operation was performed. */
+        SUCCESS,
+        /** Operation was rejected: operations are disabled, user is locked, event was cancelled, etc. */
+        FAILURE,
+        /** There is no data for the player. */
+        UNKNOWN_USER,
+        /** There is no such currency. */
+        UNKNOWN_CURRENCY
+    }
+
+    public boolean isSuccess() {
+        return this.status == Status.SUCCESS;
+    }
+}
@@ -8,6 +8,7 @@ import su.nightexpress.coinsengine.api.currency.Currency;
 import su.nightexpress.coinsengine.command.CommandManager;
 import su.nightexpress.coinsengine.currency.CurrencyManager;
 import su.nightexpress.coinsengine.currency.CurrencyRegistry;
+import su.nightexpress.coinsengine.currency.operation.BulkOperation;
 import su.nightexpress.coinsengine.currency.operation.NotificationTarget;
 import su.nightexpress.coinsengine.currency.operation.OperationContext;
 import su.nightexpress.coinsengine.currency.operation.OperationResult;
@@ -15,6 +16,7 @@ import su.nightexpress.coinsengine.user.UserManager;
 import su.nightexpress.coinsengine.data.impl.CoinsUser;
 
 import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
@@ -110,6 +112,10 @@ public class CoinsEngineAPI {
 
 
 
+    /**
+     * Loads offline player data on the calling thread. Use {@link #addBalanceAsync(UUID, String, double)} instead
+     * when calling from the main thread.
+     */
     public static boolean addBalance(@NotNull UUID playerId, @NotNull String currencyName, double amount) {
         Currency currency = getCurrency(currencyName);
         return currency != null && addBalance(playerId, currency, amount);
@@ -183,6 +189,131 @@ public class CoinsEngineAPI {
         return result == OperationResult.SUCCESS;
     }
 
+
+
+
+    @NotNull
+    public static CompletableFuture<BalanceResult> getBalanceAsync(@NotNull UUID playerId, @NotNull String currencyName) {
+        Currency currency = getCurrency(currencyName);
+        return currency == null ? unknownCurrency(playerId, currencyName) : getBalanceAsync(playerId, currency);
+    }
+
+    @NotNull
+    public static CompletableFuture<BalanceResult> getBalanceAsync(@NotNull UUID playerId, @NotNull Currency currency) {
+        return plugin().getAsyncOperations().getBalance(playerId, currency);
+    }
+
+
+    @NotNull
+    public static CompletableFuture<BalanceResult> addBalanceAsync(@NotNull UUID playerId, @NotNull String currencyName, double amount) {
+        Currency currency = getCurrency(currencyName);
+        return currency == null ? unknownCurrency(playerId, currencyName) : addBalanceAsync(playerId, currency, amount);
+    }
+
+    @NotNull
+    public static CompletableFuture<BalanceResult> addBalanceAsync(@NotNull UUID playerId, @NotNull Currency currency, double amount) {
+        return addBalanceAsync(playerId, currency, amount, operationContext());
+    }
+
+    @NotNull
+    public static CompletableFuture<BalanceResult> addBalanceAsync(@NotNull UUID playerId, @NotNull Currency currency, double amount, @NotNull OperationContext context) {
+        return plugin().getAsyncOperations().submit(playerId, currency, user -> getCurrencyManager().give(context, user, currency, amount));
+    }
+
+    @NotNull
+    public static CompletableFuture<BalanceResult> addBalanceAsync(@NotNull Player player, @NotNull Currency currency, double amount) {
+        return addBalanceAsync(player, currency, amount, operationContext());
+    }
+
+    @NotNull
+    public static CompletableFuture<BalanceResult> addBalanceAsync(@NotNull Player player, @NotNull Currency currency, double amount, @NotNull OperationContext context) {
+        return plugin().getAsyncOperations().submit(player, currency, user -> getCurrencyManager().give(context, user, currency, amount));
+    }
+
+
+    @NotNull
+    public static CompletableFuture<BalanceResult> removeBalanceAsync(@NotNull UUID playerId, @NotNull String currencyName, double amount) {
+        Currency currency = getCurrency(currencyName);
+        return currency == null ? unknownCurrency(playerId, currencyName) : removeBalanceAsync(playerId, currency, amount);
+    }
+
+    @NotNull
+    public static CompletableFuture<BalanceResult> removeBalanceAsync(@NotNull UUID playerId, @NotNull Currency currency, double amount) {
+        return removeBalanceAsync(playerId, currency, amount, operationContext());
+    }
+
+    @NotNull
+    public static CompletableFuture<BalanceResult> removeBalanceAsync(@NotNull UUID playerId, @NotNull Currency currency, double amount, @NotNull OperationContext context) {
+        return plugin().getAsyncOperations().submit(playerId, currency, user -> getCurrencyManager().remove(context, user, currency, amount));
+    }
+
+    @NotNull
+    public static CompletableFuture<BalanceResult> removeBalanceAsync(@NotNull Player player, @NotNull Currency currency, double amount) {
+        return removeBalanceAsync(player, currency, amount, operationContext());
+    }
+
+    @NotNull
+    public static CompletableFuture<BalanceResult> removeBalanceAsync(@NotNull Player player, @NotNull Currency currency, double amount, @NotNull OperationContext context) {
+        return plugin().getAsyncOperations().submit(player, currency, user -> getCurrencyManager().remove(context, user, currency, amount));
+    }
+
+
+    @NotNull
+    public static CompletableFuture<BalanceResult> setBalanceAsync(@NotNull UUID playerId, @NotNull String currencyName, double amount) {
+        Currency currency = getCurrency(currencyName);
+        return currency == null ? unknownCurrency(playerId, currencyName) : setBalanceAsync(playerId, currency, amount);
+    }
+
+    @NotNull
+    public static CompletableFuture<BalanceResult> setBalanceAsync(@NotNull UUID playerId, @NotNull Currency currency, double amount) {
+        return setBalanceAsync(playerId, currency, amount, operationContext());
+    }
+
+    @NotNull
+    public static CompletableFuture<BalanceResult> setBalanceAsync(@NotNull UUID playerId, @NotNull Currency currency, double amount, @NotNull OperationContext context) {
+        return plugin().getAsyncOperations().submit(playerId, currency, user -> getCurrencyManager().set(context, user, currency, amount));
+    }
+
+    @NotNull
+    public static CompletableFuture<BalanceResult> setBalanceAsync(@NotNull Player player, @NotNull Currency currency, double amount) {
+        return setBalanceAsync(player, currency, amount, operationContext());
+    }
+
+    @NotNull
+    public static CompletableFuture<BalanceResult> setBalanceAsync(@NotNull Player player, @NotNull Currency currency, double amount, @NotNull OperationContext context) {
+        return plugin().getAsyncOperations().submit(player, currency, user -> getCurrencyManager().set(context, user, currency, amount));
+    }
+
+    /**
+     * Changes balances of many players at once, see {@link CurrencyManager#editBalances(OperationContext, Currency, BulkOperation, Map)}.
+     * Loads offline player data on the calling thread.
+     */
+    @NotNull
+    public static Map<UUID, BalanceResult> editBalances(@NotNull Map<UUID, Double> amounts, @NotNull Currency currency, @NotNull BulkOperation operation) {
+        return editBalances(amounts, currency, operation, operationContext());
+    }
+
+    @NotNull
+    public static Map<UUID, BalanceResult> editBalances(@NotNull Map<UUID, Double> amounts, @NotNull Currency currency, @NotNull BulkOperation operation, @NotNull OperationContext context) {
+        return getCurrencyManager().editBalances(context, currency, operation, amounts);
+    }
+
+    @NotNull
+    public static CompletableFuture<Map<UUID, BalanceResult>> editBalancesAsync(@NotNull Map<UUID, Double> amounts, @NotNull Currency currency, @NotNull BulkOperation operation) {
+        return editBalancesAsync(amounts, currency, operation, operationContext());
+    }
+
+    @NotNull
+    public static CompletableFuture<Map<UUID, BalanceResult>> editBalancesAsync(@NotNull Map<UUID, Double> amounts, @NotNull Currency currency, @NotNull BulkOperation operation, @NotNull OperationContext context) {
+        Map<UUID, Double> copy = Map.copyOf(amounts);
+        return plugin().getAsyncOperations().supply(() -> editBalances(copy, currency, operation, context));
+    }
+
+    @NotNull
+    private static CompletableFuture<BalanceResult> unknownCurrency(@NotNull UUID playerId, @NotNull String currencyName) {
+        return CompletableFuture.completedFuture(new BalanceResult(BalanceResult.Status.UNKNOWN_CURRENCY, playerId, currencyName, 0D));
+    }
+
     @NotNull
     private static OperationContext operationContext() {
         return OperationContext.custom("API").silentFor(NotificationTarget.USER, NotificationTarget.EXECUTOR, NotificationTarget.CONSOLE_LOGGER);
@@ -104,6 +104,13 @@ public interface Currency {
         return this.format(balance.doubleValue());
     }
 
+    /**
+     * Writes formatted balance to the builder, without creating an intermediate string of the whole result.
+     */
+    default void format(double balance, @NotNull StringBuilder builder) {
+        builder.append(this.format(balance));
+    }
+
     @NotNull
     @Deprecated
     default CompactNumber formatCompactValue(double balance) {
@@ -124,8 +131,19 @@ public interface Currency {
         return this.formatCompact(balance.doubleValue());
     }
 
+    default void formatCompact(double balance, @NotNull StringBuilder builder) {
+        builder.append(this.formatCompact(balance));
+    }
+
     @NotNull String getId();
 
+    /**
+     * Returns dense integer index of this currency, used to store user balances in arrays.
+     *
+     * @return Currency slot index.
+     */
+    int getSlot();
+
     @NotNull String getName();
 
     void setName(@NotNull String name);
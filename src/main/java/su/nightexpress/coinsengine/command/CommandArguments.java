@@ -22,6 +22,7 @@ public class CommandArguments {
 
     public static final String FLAG_SILENT          = "s";
     public static final String FLAG_SILENT_FEEDBACK = "sf";
+    public static final String FLAG_NETWORK         = "n";
 
     @NotNull
     public static ArgumentNodeBuilder<Currency> currency(@NotNull CurrencyRegistry registry) {
@@ -14,6 +14,8 @@ import su.nightexpress.coinsengine.currency.CurrencyManager;
 import su.nightexpress.coinsengine.currency.CurrencyRegistry;
 import su.nightexpress.coinsengine.currency.operation.NotificationTarget;
 import su.nightexpress.coinsengine.currency.operation.OperationContext;
+import su.nightexpress.coinsengine.sync.NetworkGiveAll;
+import su.nightexpress.coinsengine.sync.RedisSyncManager;
 import su.nightexpress.nightcore.commands.builder.HubNodeBuilder;
 import su.nightexpress.nightcore.commands.builder.LiteralNodeBuilder;
 
@@ -34,7 +36,7 @@ public class GiveAllProvider extends CurrencyCommandProvider {
             .permission(Perms.COMMAND_CURRENCY_GIVE_ALL)
             .description(Lang.COMMAND_CURRENCY_GIVE_ALL_DESC)
             .withArguments(CommandArguments.amount())
-            .withFlags(CommandArguments.FLAG_SILENT, CommandArguments.FLAG_SILENT_FEEDBACK)
+            .withFlags(CommandArguments.FLAG_SILENT, CommandArguments.FLAG_SILENT_FEEDBACK, CommandArguments.FLAG_NETWORK)
             .executes((context, arguments) -> {
                 double amount = arguments.getDouble(CommandArguments.AMOUNT);
                 if (amount <= 0D) return false;
@@ -44,6 +46,15 @@ public class GiveAllProvider extends CurrencyCommandProvider {
                     .silentFor(NotificationTarget.USER, context.hasFlag(CommandArguments.FLAG_SILENT))
                     .silentFor(NotificationTarget.EXECUTOR, context.hasFlag(CommandArguments.FLAG_SILENT_FEEDBACK));
 
+                if (context.hasFlag(CommandArguments.FLAG_NETWORK)) {
+                    NetworkGiveAll networkGiveAll = this.plugin.getRedisSyncManager().flatMap(RedisSyncManager::getNetworkGiveAll).orElse(null);
+                    if (networkGiveAll != null) {
+                        networkGiveAll.giveAll(operationContext, currency, amount);
+                        return true;
+                    }
+                    currency.sendPrefixed(Lang.COMMAND_CURRENCY_GIVE_ALL_NETWORK_UNAVAILABLE, context.getSender());
+                }
+
                 this.manager.giveAll(operationContext, currency, amount);
 
                 return true;
@@ -1,6 +1,8 @@
 package su.nightexpress.coinsengine.config;
 
 import su.nightexpress.coinsengine.COEFiles;
+import su.nightexpress.coinsengine.data.CacheMissPolicy;
+import su.nightexpress.coinsengine.tops.LeaderboardSource;
 import su.nightexpress.nightcore.config.ConfigValue;
 import su.nightexpress.nightcore.util.Plugins;
 
@@ -15,6 +17,13 @@ public class Config {
         "Allows you to use custom images from Oraxen or ItemsAdder, as well as any other player unrelated placeholders."
     );
 
+    public static final ConfigValue<Integer> GENERAL_PLACEHOLDER_API_FORMAT_CACHE_TIME = ConfigValue.create("General.PlaceholderAPI_Format_Cache_Time",
+        1000,
+        "Time (in milliseconds) for which PlaceholderAPI values in currency formats are cached.",
+        "Formats are used very often (scoreboards, tab lists, etc.), so they are not resolved on every call.",
+        "Set to 0 to resolve them every time."
+    );
+
     public static final ConfigValue<Boolean> INTEGRATION_VAULT_ENABLED = ConfigValue.create("Integration.Vault.Enabled",
         true,
         "Controls whether Vault integration is enabled.",
@@ -26,6 +35,64 @@ public class Config {
         "Sets a currency used as primary sever economy using the Vault API."
     );
 
+    public static final ConfigValue<CacheMissPolicy> INTEGRATION_VAULT_CACHE_MISS_POLICY = ConfigValue.create("Integration.Vault.Cache_Miss_Policy",
+        CacheMissPolicy.class, CacheMissPolicy.BLOCK,
+        "Sets what Vault balance checks on the main thread do for offline players without a fresh balance snapshot.",
+        "BLOCK - Loads player data from the database right away. Can cause lag spikes with shop plugins.",
+        "ZERO - Returns zero balance and loads player data in background.",
+        "LAST_KNOWN - Returns the last known balance (or zero) and loads player data in background.",
+        "[*] Online players are always read directly, and async calls always load player data.",
+        "[*] Read statistics are logged every minute: as info when there were cache misses, otherwise in debug mode."
+    );
+
+    public static final ConfigValue<Integer> INTEGRATION_VAULT_SNAPSHOT_LIFETIME = ConfigValue.create("Integration.Vault.Snapshot_Lifetime",
+        30,
+        "Sets for how long (in seconds) balance snapshots of offline players are used by Vault balance checks.",
+        "Older snapshots are treated as cache misses and refreshed in background."
+    );
+
+    public static final ConfigValue<Integer> INTEGRATION_VAULT_SNAPSHOT_KEEP_TIME = ConfigValue.create("Integration.Vault.Snapshot_Keep_Time",
+        1800,
+        "Sets for how long (in seconds) outdated balance snapshots are kept for the 'LAST_KNOWN' cache miss policy."
+    );
+
+    public static final ConfigValue<Boolean> DATA_WRITE_BEHIND_ENABLED = ConfigValue.create("Data.Write_Behind.Enabled",
+        true,
+        "Controls whether balance changes are collected in memory and written to the database in batches.",
+        "When disabled, every change is saved on its own using the default user data save delay.",
+        "[*] Pending changes are always written on player quit and on server shutdown."
+    );
+
+    public static final ConfigValue<Integer> DATA_WRITE_BEHIND_FLUSH_INTERVAL = ConfigValue.create("Data.Write_Behind.Flush_Interval",
+        2,
+        "Sets how often (in seconds) pending balance changes are written to the database.",
+        "[Asynchronous]"
+    );
+
+    public static final ConfigValue<Integer> DATA_WRITE_BEHIND_BATCH_SIZE = ConfigValue.create("Data.Write_Behind.Batch_Size",
+        500,
+        "Sets max. amount of users written in a single database batch."
+    );
+
+    public static final ConfigValue<Integer> DATA_ASYNC_OPERATION_THREADS = ConfigValue.create("Data.Async_Operations.Threads",
+        2,
+        "Sets amount of threads used for asynchronous balance operations requested by other plugins through the API.",
+        "[*] Server restart required."
+    );
+
+    public static final ConfigValue<Integer> DATA_SYNC_LOOKBACK = ConfigValue.create("Data.Synchronization.Lookback",
+        10,
+        "Sets how many seconds before the previous synchronization rows are read again by the next one.",
+        "Covers clock differences between servers and changes committed while the previous synchronization was running.",
+        "[*] Only rows of players online on this server that were changed since then are read."
+    );
+
+    public static final ConfigValue<Integer> DATA_RESET_CHUNK_SIZE = ConfigValue.create("Data.Reset.Chunk_Size",
+        1000,
+        "Sets max. amount of users reset in a single database update when resetting balances of all players.",
+        "Currency operations are blocked only for users of the chunk being reset, so smaller chunks mean shorter waits."
+    );
+
     public static final ConfigValue<Boolean> TOPS_ENABLED = ConfigValue.create("Top.Enabled",
         true,
         "Controls whether Tops feature is enabled.",
@@ -39,6 +106,27 @@ public class Config {
         "[*] Disable if you want it be text only."
     );
 
+    public static final ConfigValue<LeaderboardSource> TOPS_SOURCE = ConfigValue.create("Top.Source",
+        LeaderboardSource.class, LeaderboardSource.INDEX,
+        "Sets how currency leaderboards are built.",
+        "INDEX - Keeps positions of all users in memory and updates them instantly on every balance change.",
+        "DATABASE - Periodically selects only top entries from the database. Uses less memory on large servers.",
+        "[*] Server restart required."
+    );
+
+    public static final ConfigValue<Integer> TOPS_DEPTH = ConfigValue.create("Top.Depth",
+        1000,
+        "Sets how many top entries per currency are available for leaderboard commands, menus and placeholders.",
+        "For the 'DATABASE' leaderboard source it's also the amount of rows selected from the database.",
+        "[*] Players below this depth still get their position in placeholders for the 'INDEX' leaderboard source."
+    );
+
+    public static final ConfigValue<Integer> TOPS_DATABASE_REFRESH_INTERVAL = ConfigValue.create("Top.Database.Refresh_Interval",
+        300,
+        "Sets how often (in seconds) top entries are selected from the database for the 'DATABASE' leaderboard source.",
+        "[Asynchronous]"
+    );
+
     public static final ConfigValue<Integer> TOPS_ENTRIES_PER_PAGE = ConfigValue.create("Top.Entries_Per_Page",
         10,
         "Sets how many entries displayed per page for currency top commands.",
@@ -46,10 +134,19 @@ public class Config {
     );
 
     public static final ConfigValue<Integer> TOPS_UPDATE_INTERVAL = ConfigValue.create("Top.Update_Interval",
-        900,
-        "Sets update interval (in seconds) for currency top balance lists.",
-        "[Asynchronous]",
-        "[Default is 900 (15 minutes)]"
+        0,
+        "Sets interval (in seconds) for full rebuild of currency top balance lists from the database.",
+        "[*] Works only for the 'INDEX' leaderboard source.",
+        "Leaderboards are updated instantly on every balance change and built from the database on startup.",
+        "Periodic rebuilds are only useful if balances of offline players are changed by other servers without Redis sync.",
+        "Set to 0 to rebuild on startup only.",
+        "[Asynchronous]"
+    );
+
+    public static final ConfigValue<Integer> CURRENCY_BULK_NOTIFICATIONS_PER_TICK = ConfigValue.create("Currency.Bulk_Notifications_Per_Tick",
+        50,
+        "Sets max. amount of players notified per tick about operations affecting many players at once (f.e. 'giveall').",
+        "The rest of notifications are sent on the next ticks."
     );
 
     public static final ConfigValue<Boolean> CURRENCY_PREFIX_ENABLED = ConfigValue.create("Currency.Prefix.Enabled",
@@ -87,6 +184,12 @@ public class Config {
         WIKI_MIGRATION
     );
 
+    public static final ConfigValue<Integer> MIGRATION_BATCH_SIZE = ConfigValue.create("Migration.Batch_Size",
+        500,
+        "Sets how many balances are written to the database in a single transaction during migration.",
+        "[*] Progress is saved after every batch, so interrupted migration continues from the last written batch."
+    );
+
     public static final ConfigValue<Boolean> LOGS_TO_CONSOLE = ConfigValue.create("Logs.Enabled.Console",
         false,
         "Controls whether currency operations will be logged to console."
@@ -155,6 +258,12 @@ public class Config {
         "Set to 0 to disable leaderboard sync."
     );
 
+    public static final ConfigValue<Integer> REDIS_GIVE_ALL_TIMEOUT = ConfigValue.create("Redis.Sync.Give_All_Timeout",
+        3,
+        "Time (in seconds) to wait for other servers to confirm a network giveall (-n flag).",
+        "After that, the total amount of affected players is reported to the command sender."
+    );
+
     public static final ConfigValue<Boolean> REDIS_SYNC_USER_DATA = ConfigValue.create("Redis.Sync.User_Data",
         true,
         "Enable synchronization of user settings and preferences."
@@ -165,6 +274,46 @@ public class Config {
         "Enable synchronization of currency operation logs."
     );
 
+    public static final ConfigValue<Boolean> REDIS_PROTOCOL_BINARY = ConfigValue.create("Redis.Protocol.Binary",
+        false,
+        "Sends sync messages as compact binary frames instead of JSON, batching changes of many users together.",
+        "Nodes always decode both binary and legacy JSON messages.",
+        "[*] Update CoinsEngine on ALL nodes before enabling it, older versions only understand JSON messages",
+        "and would ignore balance updates sent in binary frames during a rolling upgrade."
+    );
+
+    public static final ConfigValue<Integer> REDIS_PROTOCOL_BATCH_WINDOW = ConfigValue.create("Redis.Protocol.Batch_Window",
+        50,
+        "Time window (in milliseconds) to collect sync messages into a single frame.",
+        "Multiple updates of the same user within the window are sent as one."
+    );
+
+    public static final ConfigValue<Integer> REDIS_PROTOCOL_QUEUE_SIZE = ConfigValue.create("Redis.Protocol.Queue_Size",
+        10000,
+        "Max. amount of sync messages waiting to be published.",
+        "When the queue is full, new messages are dropped and reported in the console."
+    );
+
+    public static final ConfigValue<Integer> REDIS_PROTOCOL_QUEUE_TIMEOUT = ConfigValue.create("Redis.Protocol.Queue_Timeout",
+        50,
+        "Max. time (in milliseconds) async tasks wait for free space in a full queue before the message is dropped.",
+        "The main thread never waits."
+    );
+
+    public static final ConfigValue<Boolean> REDIS_STORE_ENABLED = ConfigValue.create("Redis.Store.Enabled",
+        false,
+        "When enabled, Redis becomes the source of truth for balances.",
+        "Balances are kept in Redis hashes and changed by atomic scripts, so funds are checked and moved",
+        "atomically across all servers. The database is updated asynchronously as a durable copy.",
+        "Changes applied in Redis can not be cancelled by other plugins through the balance change event.",
+        "Requires Redis to be enabled. All servers must use the same setting."
+    );
+
+    public static final ConfigValue<String> REDIS_STORE_KEY_PREFIX = ConfigValue.create("Redis.Store.Key_Prefix",
+        "coinsengine:balance:",
+        "Prefix of Redis keys with user balances. Player UUID is appended to it."
+    );
+
     public static final ConfigValue<Boolean> EXPERIMENTAL_AUTO_REGISTER_USERS = ConfigValue.create("Experimental.Auto_Register_Users",
         false,
         "VERY EXPERIMENTAL! May cause issues with cracked/offline-mode servers.",
@@ -173,10 +322,18 @@ public class Config {
         "Keep disabled unless you understand and accept the risks."
     );
 
+    public static boolean isWriteBehindEnabled() {
+        return DATA_WRITE_BEHIND_ENABLED.get();
+    }
+
     public static boolean isTopsEnabled() {
         return TOPS_ENABLED.get();
     }
 
+    public static boolean isDatabaseTops() {
+        return isTopsEnabled() && TOPS_SOURCE.get() == LeaderboardSource.DATABASE;
+    }
+
     public static boolean isWalletEnabled() {
         return WALLET_ENABLED.get();
     }
@@ -193,6 +350,10 @@ public class Config {
         return REDIS_ENABLED.get();
     }
 
+    public static boolean isRedisStoreEnabled() {
+        return isRedisEnabled() && REDIS_STORE_ENABLED.get();
+    }
+
     public static boolean isAutoRegisterUsersEnabled() {
         return EXPERIMENTAL_AUTO_REGISTER_USERS.get();
     }
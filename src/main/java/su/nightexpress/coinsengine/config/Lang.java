@@ -44,6 +44,10 @@ public class Lang implements LangContainer {
         SOFT_RED.wrap("Currency operations are temporarily disabled.")
     );
 
+    public static final MessageLocale CURRENCY_OPERATION_LOCKED = LangEntry.builder("Currency.Operation.Locked").chatMessage(
+        SOFT_RED.wrap("Balance is being reset right now. Please try again in a moment.")
+    );
+
     public static final MessageLocale CURRENCY_OPERATION_RESET_FEEDBACK = LangEntry.builder("Currency.Operation.Reset.Feedback").chatMessage(
         GRAY.wrap(SOFT_YELLOW.wrap(PLAYER_NAME) + "'s balance has been reset to " + SOFT_YELLOW.wrap(GENERIC_BALANCE) + "."));
 
@@ -61,6 +65,15 @@ public class Lang implements LangContainer {
     public static final MessageLocale MIGRATION_START_BAD_CURRENCY = LangEntry.builder("Migration.Start.BadCurrency").chatMessage(
         SOFT_RED.wrap("Could not migrate data from " + GENERIC_NAME + " to " + CURRENCY_NAME + "."));
 
+    public static final MessageLocale MIGRATION_RESUMED = LangEntry.builder("Migration.Resumed").chatMessage(
+        GRAY.wrap("Found unfinished migration from " + WHITE.wrap(GENERIC_NAME) + ". Resuming after player " + SOFT_YELLOW.wrap(GENERIC_VALUE) + "."));
+
+    public static final MessageLocale MIGRATION_PROGRESS = LangEntry.builder("Migration.Progress").chatMessage(
+        GRAY.wrap("Migrated " + SOFT_YELLOW.wrap(GENERIC_AMOUNT) + " balances (" + SOFT_YELLOW.wrap(GENERIC_VALUE) + " per second)."));
+
+    public static final MessageLocale MIGRATION_FAILED = LangEntry.builder("Migration.Failed").chatMessage(
+        SOFT_RED.wrap("Migration from " + GENERIC_NAME + " failed after " + GENERIC_AMOUNT + " records. Run it again to continue from the last written batch."));
+
     public static final MessageLocale MIGRATION_STARTED = LangEntry.builder("Migration.Started").message(
         MessageData.CHAT_NO_PREFIX,
         DARK_GRAY.wrap(STRIKETHROUGH.wrap("-".repeat(32))),
@@ -77,7 +90,7 @@ public class Lang implements LangContainer {
         DARK_GRAY.wrap(STRIKETHROUGH.wrap("-".repeat(32))),
         GRAY.wrap("[" + GREEN.wrap("→") + "] Data Migration:"),
         " ",
-        GRAY.wrap("Finished data migration from " + WHITE.wrap(GENERIC_NAME) + "!"),
+        GRAY.wrap("Finished data migration from " + WHITE.wrap(GENERIC_NAME) + "! Balances migrated: " + WHITE.wrap(GENERIC_AMOUNT)),
         " ",
         GREEN.wrap(UNDERLINED.wrap("All currency operations are enabled again.")),
         DARK_GRAY.wrap(STRIKETHROUGH.wrap("-".repeat(32)))
@@ -95,7 +108,7 @@ public class Lang implements LangContainer {
         " ",
         GRAY.wrap("Started " + WHITE.wrap(CURRENCY_NAME) + " balance reset for all players. Please wait..."),
         " ",
-        RED.wrap(UNDERLINED.wrap("All currency operations are disabled until reset is completed.")),
+        RED.wrap(UNDERLINED.wrap("Currency operations are blocked only for players being reset at the moment.")),
         DARK_GRAY.wrap(STRIKETHROUGH.wrap("-".repeat(32)))
     );
 
@@ -104,12 +117,14 @@ public class Lang implements LangContainer {
         DARK_GRAY.wrap(STRIKETHROUGH.wrap("-".repeat(32))),
         GRAY.wrap("[" + GREEN.wrap("$") + "] Balance Reset:"),
         " ",
-        GRAY.wrap("Finished " + WHITE.wrap(CURRENCY_NAME) + " balance reset for all players!"),
-        " ",
-        GREEN.wrap(UNDERLINED.wrap("All currency operations are enabled again.")),
+        GRAY.wrap("Finished " + WHITE.wrap(CURRENCY_NAME) + " balance reset for all players! Users affected: " + WHITE.wrap(GENERIC_AMOUNT)),
         DARK_GRAY.wrap(STRIKETHROUGH.wrap("-".repeat(32)))
     );
 
+    public static final MessageLocale RESET_ALL_PROGRESS = LangEntry.builder("ResetAll.Progress").chatMessage(
+        GRAY.wrap("Balance reset progress: " + SOFT_YELLOW.wrap(GENERIC_CURRENT + "%") + " (" + SOFT_YELLOW.wrap(GENERIC_AMOUNT) + " users reset).")
+    );
+
     public static final MessageLocale RESET_ALL_STARTED_GLOBAL = LangEntry.builder("ResetAll.Started.Global").message(
         MessageData.CHAT_NO_PREFIX,
         DARK_GRAY.wrap(STRIKETHROUGH.wrap("-".repeat(32))),
@@ -117,7 +132,7 @@ public class Lang implements LangContainer {
         " ",
         GRAY.wrap("Started balance reset for all currencies for all players. Please wait..."),
         " ",
-        RED.wrap(UNDERLINED.wrap("All currency operations are disabled until reset is completed.")),
+        RED.wrap(UNDERLINED.wrap("Currency operations are blocked only for players being reset at the moment.")),
         DARK_GRAY.wrap(STRIKETHROUGH.wrap("-".repeat(32)))
     );
 
@@ -126,9 +141,7 @@ public class Lang implements LangContainer {
         DARK_GRAY.wrap(STRIKETHROUGH.wrap("-".repeat(32))),
         GRAY.wrap("[" + GREEN.wrap("$") + "] Balance Reset:"),
         " ",
-        GRAY.wrap("Finished balance reset for all currencies for all players!"),
-        " ",
-        GREEN.wrap(UNDERLINED.wrap("All currency operations are enabled again.")),
+        GRAY.wrap("Finished balance reset for all currencies for all players! Users affected: " + WHITE.wrap(GENERIC_AMOUNT)),
         DARK_GRAY.wrap(STRIKETHROUGH.wrap("-".repeat(32)))
     );
 
@@ -157,6 +170,18 @@ public class Lang implements LangContainer {
         GRAY.wrap("Added " + SOFT_YELLOW.wrap(GENERIC_AMOUNT) + " to " + SOFT_YELLOW.wrap("All Online") + " players.")
     );
 
+    public static final MessageLocale COMMAND_CURRENCY_GIVE_ALL_NETWORK_DONE = LangEntry.builder("Command.Currency.GiveAll.Network.Done").chatMessage(
+        GRAY.wrap("Added " + SOFT_YELLOW.wrap(GENERIC_AMOUNT) + " to " + SOFT_YELLOW.wrap(GENERIC_VALUE) + " players on " + SOFT_YELLOW.wrap(GENERIC_CURRENT) + " servers.")
+    );
+
+    public static final MessageLocale COMMAND_CURRENCY_GIVE_ALL_NETWORK_NODE = LangEntry.builder("Command.Currency.GiveAll.Network.Node").chatMessage(
+        GRAY.wrap(SOFT_YELLOW.wrap(GENERIC_NAME) + ": " + SOFT_YELLOW.wrap(GENERIC_VALUE) + " players, confirmed in " + SOFT_YELLOW.wrap(GENERIC_CURRENT) + " ms.")
+    );
+
+    public static final MessageLocale COMMAND_CURRENCY_GIVE_ALL_NETWORK_UNAVAILABLE = LangEntry.builder("Command.Currency.GiveAll.Network.Unavailable").chatMessage(
+        SOFT_RED.wrap("Redis sync is not available, currency is given to players of this server only.")
+    );
+
 
     public static final MessageLocale COMMAND_CURRENCY_TAKE_DONE = LangEntry.builder("Command.Currency.Take.Done").chatMessage(
         GRAY.wrap("Taken " + SOFT_YELLOW.wrap(GENERIC_AMOUNT) + " from " + SOFT_YELLOW.wrap(PLAYER_NAME) + "'s balance. New balance: " + SOFT_YELLOW.wrap(GENERIC_BALANCE) + "."));
@@ -178,6 +203,12 @@ public class Lang implements LangContainer {
     public static final MessageLocale CURRENCY_SEND_ERROR_TOO_LOW = LangEntry.builder("Command.Currency.Send.Error.TooLow").chatMessage(
         GRAY.wrap("You can not send smaller than " + SOFT_RED.wrap(GENERIC_AMOUNT) + "!"));
 
+    public static final MessageLocale CURRENCY_SEND_ERROR_LIMIT_EXCEED = LangEntry.builder("Command.Currency.Send.Error.LimitExceed").chatMessage(
+        GRAY.wrap(SOFT_RED.wrap(PLAYER_NAME) + " can't hold more than " + SOFT_RED.wrap(GENERIC_MAX) + " total!"));
+
+    public static final MessageLocale CURRENCY_OPERATION_CANCELLED = LangEntry.builder("Currency.Operation.Cancelled").chatMessage(
+        SOFT_RED.wrap("Operation was cancelled. No balances were changed."));
+
     public static final MessageLocale CURRENCY_SEND_ERROR_NO_PAYMENTS = LangEntry.builder("Command.Currency.Send.Error.NoPayments").chatMessage(
         GRAY.wrap(SOFT_RED.wrap(PLAYER_NAME) + " does not accept " + SOFT_RED.wrap(CURRENCY_NAME) + "!"));
 
@@ -0,0 +1,143 @@
+package su.nightexpress.coinsengine.currency;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import su.nightexpress.coinsengine.CoinsEnginePlugin;
+import su.nightexpress.coinsengine.api.BalanceResult;
+import su.nightexpress.coinsengine.api.currency.Currency;
+import su.nightexpress.coinsengine.currency.operation.OperationResult;
+import su.nightexpress.coinsengine.data.impl.CoinsUser;
+import su.nightexpress.coinsengine.user.UserManager;
+
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs balance operations requested through the API on a dedicated thread pool.
+ * - User loading, the operation itself and saving are done on the pool, so callers never wait for the database.
+ * - Futures are completed on the thread that requested the operation: the main thread (or the player's region if
+ *   player is known) for sync callers, the pool thread otherwise.
+ */
+public class AsyncOperationService {
+
+    private final CoinsEnginePlugin plugin;
+    private final UserManager       userManager;
+    private final ExecutorService   executor;
+
+    public AsyncOperationService(@NotNull CoinsEnginePlugin plugin, @NotNull UserManager userManager, int threads) {
+        this.plugin = plugin;
+        this.userManager = userManager;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "CoinsEngine-Operations-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stops accepting new operations and waits for queued ones, so their changes are saved.
+     */
+    public void shutdown() {
+        this.executor.shutdown();
+
+        try {
+            if (!this.executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                this.plugin.warn("Some asynchronous balance operations did not complete in time: " + this.executor.shutdownNow().size() + " discarded.");
+            }
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @NotNull
+    public CompletableFuture<BalanceResult> getBalance(@NotNull UUID playerId, @NotNull Currency currency) {
+        return this.submit(playerId, null, currency, user -> OperationResult.SUCCESS);
+    }
+
+    /**
+     * @param playerId ID of the player whose balance is changed.
+     * @param currency Currency of the balance.
+     * @param operation Operation to perform on the user, called on the pool thread.
+     */
+    @NotNull
+    public CompletableFuture<BalanceResult> submit(@NotNull UUID playerId, @NotNull Currency currency, @NotNull Function<CoinsUser, OperationResult> operation) {
+        return this.submit(playerId, null, currency, operation);
+    }
+
+    @NotNull
+    public CompletableFuture<BalanceResult> submit(@NotNull Player player, @NotNull Currency currency, @NotNull Function<CoinsUser, OperationResult> operation) {
+        return this.submit(player.getUniqueId(), player, currency, operation);
+    }
+
+    @NotNull
+    private CompletableFuture<BalanceResult> submit(@NotNull UUID playerId,
+                                                    @Nullable Player player,
+                                                    @NotNull Currency currency,
+                                                    @NotNull Function<CoinsUser, OperationResult> operation) {
+        return this.supply(player, () -> this.perform(playerId, currency, operation));
+    }
+
+    /**
+     * Runs any task on the pool, f.e. a bulk operation, and completes the future the same way as single operations.
+     */
+    @NotNull
+    public <T> CompletableFuture<T> supply(@NotNull Supplier<T> task) {
+        return this.supply(null, task);
+    }
+
+    @NotNull
+    private <T> CompletableFuture<T> supply(@Nullable Player player, @NotNull Supplier<T> task) {
+        Executor callback = this.callbackExecutor(player);
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        try {
+            this.executor.execute(() -> {
+                T result;
+                try {
+                    result = task.get();
+                }
+                catch (Throwable throwable) {
+                    callback.execute(() -> future.completeExceptionally(throwable));
+                    return;
+                }
+                callback.execute(() -> future.complete(result));
+            });
+        }
+        catch (RejectedExecutionException exception) {
+            future.completeExceptionally(exception);
+        }
+
+        return future;
+    }
+
+    @NotNull
+    private BalanceResult perform(@NotNull UUID playerId, @NotNull Currency currency, @NotNull Function<CoinsUser, OperationResult> operation) {
+        CoinsUser user = this.userManager.getOrFetch(playerId);
+        if (user == null) {
+            return new BalanceResult(BalanceResult.Status.UNKNOWN_USER, playerId, currency.getId(), 0D);
+        }
+
+        OperationResult result = operation.apply(user);
+        BalanceResult.Status status = result == OperationResult.SUCCESS ? BalanceResult.Status.SUCCESS : BalanceResult.Status.FAILURE;
+
+        return new BalanceResult(status, playerId, currency.getId(), user.getBalance(currency));
+    }
+
+    @NotNull
+    private Executor callbackExecutor(@Nullable Player player) {
+        if (!Bukkit.isPrimaryThread()) return Runnable::run;
+
+        if (player != null && this.plugin.getFoliaScheduler().isFolia()) {
+            return task -> this.plugin.runAtEntity(player, task);
+        }
+        return this.plugin::runNextTick;
+    }
+}
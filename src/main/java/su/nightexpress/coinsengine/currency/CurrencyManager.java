@@ -1,5 +1,6 @@
 package su.nightexpress.coinsengine.currency;
 
+import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
@@ -8,11 +9,15 @@ import org.jetbrains.annotations.Nullable;
 import su.nightexpress.coinsengine.COEFiles;
 import su.nightexpress.coinsengine.CoinsEnginePlugin;
 import su.nightexpress.coinsengine.Placeholders;
+import su.nightexpress.coinsengine.api.BalanceResult;
 import su.nightexpress.coinsengine.api.currency.Currency;
+import su.nightexpress.coinsengine.api.event.ChangeBalanceEvent;
 import su.nightexpress.coinsengine.config.Config;
 import su.nightexpress.coinsengine.config.Lang;
 import su.nightexpress.coinsengine.currency.impl.AbstractCurrency;
 import su.nightexpress.coinsengine.currency.impl.NormalCurrency;
+import su.nightexpress.coinsengine.currency.operation.BalanceTransaction;
+import su.nightexpress.coinsengine.currency.operation.BulkOperation;
 import su.nightexpress.coinsengine.currency.operation.NotificationTarget;
 import su.nightexpress.coinsengine.currency.operation.OperationContext;
 import su.nightexpress.coinsengine.currency.operation.OperationExecutor;
@@ -21,12 +26,18 @@ import su.nightexpress.coinsengine.data.DataHandler;
 import su.nightexpress.coinsengine.data.impl.CoinsUser;
 import su.nightexpress.coinsengine.data.impl.CurrencySettings;
 import su.nightexpress.coinsengine.hook.HookPlugin;
+import su.nightexpress.coinsengine.sync.RedisBalanceStore;
+import su.nightexpress.coinsengine.sync.RedisSyncManager;
+import su.nightexpress.coinsengine.user.BalanceLocks;
 import su.nightexpress.coinsengine.user.UserManager;
 import su.nightexpress.nightcore.config.FileConfig;
 import su.nightexpress.nightcore.core.config.CoreLang;
-import su.nightexpress.nightcore.db.AbstractUser;
+import su.nightexpress.nightcore.lib.folialib.wrapper.task.WrappedTask;
+import su.nightexpress.nightcore.locale.entry.MessageLocale;
 import su.nightexpress.nightcore.manager.AbstractManager;
 import su.nightexpress.nightcore.util.FileUtil;
+import su.nightexpress.nightcore.util.Lists;
+import su.nightexpress.nightcore.util.NumberUtil;
 import su.nightexpress.nightcore.util.Plugins;
 import su.nightexpress.nightcore.util.Strings;
 import su.nightexpress.nightcore.util.bukkit.NightItem;
@@ -37,11 +48,23 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class CurrencyManager extends AbstractManager<CoinsEnginePlugin> {
@@ -50,6 +73,9 @@ public class CurrencyManager extends AbstractManager<CoinsEnginePlugin> {
     private final DataHandler      dataHandler;
     private final UserManager      userManager;
 
+    private final Set<UUID>     lockedUsers;  // Users of the balance reset chunk being processed.
+    private final AtomicBoolean resetRunning;
+
     private boolean        operationsAllowed;
     private CurrencyLogger logger;
 
@@ -58,6 +84,8 @@ public class CurrencyManager extends AbstractManager<CoinsEnginePlugin> {
         this.registry = registry;
         this.dataHandler = dataHandler;
         this.userManager = userManager;
+        this.lockedUsers = ConcurrentHashMap.newKeySet();
+        this.resetRunning = new AtomicBoolean(false);
         this.allowOperations();
     }
 
@@ -218,11 +246,61 @@ public class CurrencyManager extends AbstractManager<CoinsEnginePlugin> {
         return this.operationsAllowed;
     }
 
-    private boolean assertOperationsEnabled(@NotNull OperationContext context) {
+    public boolean isResetRunning() {
+        return this.resetRunning.get();
+    }
+
+    /**
+     * @return True if user's balance is being reset right now and can not be changed.
+     */
+    public boolean isUserLocked(@NotNull UUID playerId) {
+        return this.lockedUsers.contains(playerId);
+    }
+
+    @Nullable
+    private RedisBalanceStore getBalanceStore() {
+        return this.plugin.getRedisSyncManager().flatMap(RedisSyncManager::getBalanceStore).orElse(null);
+    }
+
+    @Nullable
+    private Double callStore(@NotNull Supplier<Double> action) {
+        try {
+            return action.get();
+        }
+        catch (Exception exception) {
+            this.plugin.error("Could not update balance in Redis store: " + exception.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Applies balance already changed in the Redis store to the local user. Listeners are notified as usual, but
+     * can not cancel the change, because the store is the source of truth.
+     *
+     * @return Balance difference made locally.
+     */
+    private double applyStoredBalance(@NotNull CoinsUser user, @NotNull Currency currency, double balance) {
+        CoinsUser.BalanceEdit edit = user.edit(currency, lookup -> lookup.set(currency, balance));
+        if (!edit.cancelled()) return edit.delta();
+
+        user.getBalance().set(currency, balance);
+        user.markDirty(currency);
+        this.plugin.getTopManager().ifPresent(topManager -> topManager.updateUser(user));
+        return balance - edit.oldBalance();
+    }
+
+    private boolean assertOperationsEnabled(@NotNull OperationContext context, @NotNull CoinsUser... users) {
         if (!this.canPerformOperations()) {
             context.getBukkitSender().ifPresent(sender -> Lang.CURRENCY_OPERATION_DISABLED.message().send(sender));
             return false;
         }
+
+        for (CoinsUser user : users) {
+            if (this.isUserLocked(user.getId())) {
+                context.getBukkitSender().ifPresent(sender -> Lang.CURRENCY_OPERATION_LOCKED.message().send(sender));
+                return false;
+            }
+        }
         return true;
     }
 
@@ -267,29 +345,328 @@ public class CurrencyManager extends AbstractManager<CoinsEnginePlugin> {
     }
 
     public void resetBalances(@NotNull CommandSender sender, @Nullable Currency currency) {
-        if (!this.canPerformOperations()) {
+        if (!this.canPerformOperations() || !this.resetRunning.compareAndSet(false, true)) {
             Lang.RESET_ALL_START_BLOCKED.message().send(sender);
             return;
         }
 
+        Collection<Currency> currencies = currency == null ? this.registry.getCurrencies() : Lists.newSet(currency);
+
         this.plugin.runTaskAsync(task -> {
-            this.disableOperations();
-            if (currency == null) {
-                Collection<Currency> currencies = this.registry.getCurrencies();
-
-                Lang.RESET_ALL_STARTED_GLOBAL.message().send(sender);
-                this.dataHandler.resetBalances(currencies);
-                this.userManager.getLoaded().forEach(user -> user.resetBalance(currencies));
-                Lang.RESET_ALL_COMPLETED_GLOBAL.message().send(sender);
+            try {
+                if (currency == null) {
+                    Lang.RESET_ALL_STARTED_GLOBAL.message().send(sender);
+                }
+                else {
+                    Lang.RESET_ALL_STARTED_CURRENCY.message().send(sender, replacer -> replacer.replace(currency.replacePlaceholders()));
+                }
+
+                int affected = this.resetBalancesChunked(sender, currencies);
+
+                if (currency == null) {
+                    Lang.RESET_ALL_COMPLETED_GLOBAL.message().send(sender, replacer -> replacer.replace(Placeholders.GENERIC_AMOUNT, NumberUtil.format(affected)));
+                }
+                else {
+                    Lang.RESET_ALL_COMPLETED_CURRENCY.message().send(sender, replacer -> replacer
+                        .replace(currency.replacePlaceholders())
+                        .replace(Placeholders.GENERIC_AMOUNT, NumberUtil.format(affected))
+                    );
+                }
             }
-            else {
-                Lang.RESET_ALL_STARTED_CURRENCY.message().send(sender, replacer -> replacer.replace(currency.replacePlaceholders()));
-                this.dataHandler.resetBalances(currency);
-                this.userManager.getLoaded().forEach(user -> user.resetBalance(currency));
-                Lang.RESET_ALL_COMPLETED_CURRENCY.message().send(sender, replacer -> replacer.replace(currency.replacePlaceholders()));
+            finally {
+                this.resetRunning.set(false);
+            }
+        });
+    }
+
+    /**
+     * Resets balances by ranges of row IDs, one bounded database update per range. Operations are blocked only for
+     * users of the range being reset, loaded users of the range are reset in memory as well. Balance locks of loaded
+     * users are held for the whole range, so no edit lands between the database and the memory reset.
+     *
+     * @return Amount of reset users.
+     */
+    private int resetBalancesChunked(@NotNull CommandSender sender, @NotNull Collection<Currency> currencies) {
+        long[] range = this.dataHandler.getUserIdRange();
+        if (range == null) return 0;
+
+        long minId = range[0];
+        long maxId = range[1];
+        long span = maxId - minId + 1;
+        int chunkSize = Math.max(1, Config.DATA_RESET_CHUNK_SIZE.get());
+        int affected = 0;
+        int reportedPercent = 0;
+
+        for (long fromId = minId; fromId <= maxId; fromId += chunkSize) {
+            long chunkFrom = fromId;
+            long toId = fromId + chunkSize;
+            Set<UUID> playerIds = this.dataHandler.getPlayerIds(fromId, toId);
+            List<CoinsUser> loaded = playerIds.stream().map(this.userManager::getLoaded).filter(Objects::nonNull).toList();
+            int[] stripes = loaded.stream()
+                .flatMapToInt(user -> currencies.stream().mapToInt(currency -> BalanceLocks.stripeOf(user.getId(), currency)))
+                .sorted().distinct().toArray();
+
+            Map<CoinsUser, Map<Currency, Double>> oldBalances = new HashMap<>();
+            int[] updated = new int[1];
+
+            this.lockedUsers.addAll(playerIds);
+            try {
+                // The advisory check above does not stop edits that passed it right before, the locks do.
+                BalanceLocks.runLocked(stripes, () -> {
+                    updated[0] = this.dataHandler.resetBalances(currencies, chunkFrom, toId);
+
+                    // Drop stored balances, so they are seeded again from the reset database values.
+                    RedisBalanceStore store = this.getBalanceStore();
+                    if (store != null && !playerIds.isEmpty()) {
+                        this.callStore(() -> {
+                            store.clear(playerIds, currencies);
+                            return 0D;
+                        });
+                    }
+
+                    loaded.forEach(user -> currencies.forEach(currency -> {
+                        oldBalances.computeIfAbsent(user, k -> new HashMap<>()).put(currency, user.getBalance(currency));
+                        user.getBalance().set(currency, currency.getStartValue());
+                        user.markDirty(currency);
+                    }));
+                });
+                if (updated[0] > 0) affected += updated[0];
+            }
+            finally {
+                this.lockedUsers.removeAll(playerIds);
+            }
+
+            // Events are called without locks. Database rows are reset already, so the reset can not be cancelled.
+            oldBalances.forEach((user, balances) -> balances.forEach((currency, oldBalance) -> {
+                Bukkit.getPluginManager().callEvent(new ChangeBalanceEvent(user, currency, oldBalance, user.getBalance(currency)));
+            }));
+
+            int percent = (int) (Math.min(toId - minId, span) * 100L / span);
+            if (percent / 10 > reportedPercent / 10 && percent < 100) {
+                reportedPercent = percent;
+
+                int current = affected;
+                Lang.RESET_ALL_PROGRESS.message().send(sender, replacer -> replacer
+                    .replace(Placeholders.GENERIC_CURRENT, String.valueOf(percent))
+                    .replace(Placeholders.GENERIC_AMOUNT, NumberUtil.format(current))
+                );
+            }
+        }
+
+        this.plugin.getTopManager().ifPresent(topManager -> this.userManager.getLoaded().forEach(topManager::updateUser));
+        return affected;
+    }
+
+    /**
+     * Moves the amount from one user to another. Both balances are changed or none of them, and both rows are written
+     * in a single database transaction.
+     *
+     * @return Transaction status.
+     */
+    @NotNull
+    public BalanceTransaction.Status transfer(@NotNull CoinsUser from, @NotNull CoinsUser to, @NotNull Currency currency, double amount) {
+        return this.commit(BalanceTransaction.transfer(from, to, currency, amount));
+    }
+
+    /**
+     * Applies the transaction and writes all changed rows in a single database transaction.
+     *
+     * @return Transaction status.
+     */
+    @NotNull
+    public BalanceTransaction.Status commit(@NotNull BalanceTransaction transaction) {
+        BalanceTransaction.Status status = transaction.commit();
+        if (status == BalanceTransaction.Status.SUCCESS) {
+            this.saveTransaction(transaction.getChanges());
+        }
+        return status;
+    }
+
+    private void saveTransaction(@NotNull Map<CoinsUser, Set<Currency>> changes) {
+        this.plugin.runTaskAsync(() -> {
+            if (!this.dataHandler.saveBalances(changes)) {
+                changes.keySet().forEach(this.userManager::save); // Fall back to regular saving.
+            }
+        });
+    }
+
+    /**
+     * Changes balances of many users at once. Missing users are loaded with a single query, changed balances are
+     * written as one batch, and sync updates are sent as a single frame. Only one log entry is written.
+     * Performs database queries on the calling thread, so it should not be called from the main thread.
+     *
+     * @param context Operation context.
+     * @param currency Currency to change.
+     * @param operation Operation to perform.
+     * @param amounts Amount by player ID.
+     * @return Result by player ID.
+     */
+    @NotNull
+    public Map<UUID, BalanceResult> editBalances(@NotNull OperationContext context, @NotNull Currency currency,
+                                                 @NotNull BulkOperation operation, @NotNull Map<UUID, Double> amounts) {
+        Map<UUID, BalanceResult> results = new HashMap<>();
+        if (!this.assertOperationsEnabled(context)) {
+            amounts.keySet().forEach(playerId -> results.put(playerId, new BalanceResult(BalanceResult.Status.FAILURE, playerId, currency.getId(), 0D)));
+            return results;
+        }
+
+        Map<UUID, CoinsUser> users = this.userManager.getOrFetch(amounts.keySet());
+        Map<CoinsUser, Double> targets = new HashMap<>();
+
+        amounts.forEach((playerId, amount) -> {
+            CoinsUser user = users.get(playerId);
+            if (user == null) {
+                results.put(playerId, new BalanceResult(BalanceResult.Status.UNKNOWN_USER, playerId, currency.getId(), 0D));
+            }
+            else if (this.isUserLocked(playerId)) {
+                results.put(playerId, new BalanceResult(BalanceResult.Status.FAILURE, playerId, currency.getId(), user.getBalance(currency)));
             }
-            this.allowOperations();
+            else targets.put(user, amount);
+        });
+
+        Map<CoinsUser, Double> deltas = this.applyBulk(currency, operation, targets);
+        targets.keySet().forEach(user -> {
+            BalanceResult.Status status = deltas.containsKey(user) ? BalanceResult.Status.SUCCESS : BalanceResult.Status.FAILURE;
+            results.put(user.getId(), new BalanceResult(status, user.getId(), currency.getId(), user.getBalance(currency)));
+        });
+
+        this.saveBulk(currency, deltas.keySet());
+        // Deltas are merged with concurrent changes on other nodes. Nodes that have the user not loaded skip them, as
+        // they read the rows written above instead.
+        this.plugin.getRedisSyncManager().ifPresent(sync -> sync.publishBalanceChanges(currency, deltas, operation == BulkOperation.SET));
+
+        if (context.shouldNotify(NotificationTarget.USER)) {
+            MessageLocale message = switch (operation) {
+                case GIVE -> Lang.COMMAND_CURRENCY_GIVE_NOTIFY;
+                case REMOVE -> Lang.COMMAND_CURRENCY_TAKE_NOTIFY;
+                case SET -> Lang.COMMAND_CURRENCY_SET_NOTIFY;
+            };
+            this.sendBulkNotifications(currency, message, targets, deltas.keySet());
+        }
+
+        if (this.logger != null && context.shouldNotifyLogger()) {
+            double total = deltas.values().stream().mapToDouble(Double::doubleValue).sum();
+            this.logger.addEntry(context, "[%s] %s performed %s for %s of %s players. Total change: %s"
+                .formatted(currency.getId(), context.getExecutor().getName(), operation.name(), deltas.size(), amounts.size(), currency.format(total))
+            );
+        }
+
+        return results;
+    }
+
+    /**
+     * Applies the operation to all given users. With the Redis store enabled, all changes are sent in one pipeline.
+     *
+     * @param amounts Operation amount by user.
+     * @return Balance difference by user, only for users the operation was applied to. Users whose ChangeBalanceEvent
+     * was cancelled are missing.
+     */
+    @NotNull
+    private Map<CoinsUser, Double> applyBulk(@NotNull Currency currency, @NotNull BulkOperation operation, @NotNull Map<CoinsUser, Double> amounts) {
+        Map<CoinsUser, Double> deltas = new HashMap<>();
+
+        RedisBalanceStore store = this.getBalanceStore();
+        if (store == null) {
+            amounts.forEach((user, amount) -> {
+                CoinsUser.BalanceEdit edit = user.edit(currency, balance -> {
+                    switch (operation) {
+                        case GIVE -> balance.add(currency, amount);
+                        case REMOVE -> balance.remove(currency, amount);
+                        case SET -> balance.set(currency, amount);
+                    }
+                });
+                if (!edit.cancelled()) deltas.put(user, edit.delta()); // Cancelled edits are reported as failed.
+            });
+            return deltas;
+        }
+
+        Map<CoinsUser, Double> values = new HashMap<>();
+        amounts.forEach((user, amount) -> values.put(user, switch (operation) {
+            case GIVE -> Math.abs(amount);
+            case REMOVE -> Math.abs(amount);
+            case SET -> currency.floorAndLimit(amount);
+        }));
+
+        Map<UUID, Double> stored;
+        try {
+            stored = switch (operation) {
+                case GIVE -> store.addAll(currency, values);
+                case REMOVE -> store.withdrawAll(currency, values);
+                case SET -> store.setAll(currency, values);
+            };
+        }
+        catch (Exception exception) {
+            this.plugin.error("Could not update balances in Redis store: " + exception.getMessage());
+            return deltas;
+        }
+
+        values.keySet().forEach(user -> {
+            Double balance = stored.get(user.getId());
+            if (balance == null) return;
+
+            deltas.put(user, this.applyStoredBalance(user, currency, balance));
         });
+        return deltas;
+    }
+
+    /**
+     * Writes changed balances of the users as a single batch. Performs the write on the calling thread.
+     */
+    private void saveBulk(@NotNull Currency currency, @NotNull Collection<CoinsUser> users) {
+        List<CoinsUser> changed = users.stream().filter(user -> user.isDirty(currency)).toList();
+        if (!this.dataHandler.saveBalances(currency, changed)) {
+            changed.forEach(this.userManager::save); // Fall back to regular saving.
+        }
+    }
+
+    /**
+     * Notifies online users about a bulk operation. Messages are spread over several ticks when there are more
+     * recipients than allowed per tick.
+     */
+    private void sendBulkNotifications(@NotNull Currency currency, @NotNull MessageLocale message,
+                                       @NotNull Map<CoinsUser, Double> amounts, @NotNull Collection<CoinsUser> users) {
+        Queue<CoinsUser> queue = users.stream().filter(user -> user.getPlayer() != null).collect(Collectors.toCollection(ArrayDeque::new));
+        if (queue.isEmpty()) return;
+
+        int perTick = Math.max(1, Config.CURRENCY_BULK_NOTIFICATIONS_PER_TICK.get());
+
+        Runnable sender = () -> {
+            for (int sent = 0; sent < perTick; sent++) {
+                CoinsUser user = queue.poll();
+                if (user == null) return;
+
+                Player target = user.getPlayer();
+                if (target == null) continue;
+
+                currency.sendPrefixed(message, target, replacer -> replacer
+                    .replace(Placeholders.GENERIC_AMOUNT, currency.format(amounts.getOrDefault(user, 0D)))
+                    .replace(Placeholders.GENERIC_BALANCE, currency.format(user.getBalance(currency)))
+                );
+            }
+        };
+
+        if (queue.size() <= perTick) {
+            sender.run();
+            return;
+        }
+
+        AtomicReference<WrappedTask> task = new AtomicReference<>();
+        task.set(this.plugin.getFoliaScheduler().runTimer(() -> {
+            sender.run();
+            if (queue.isEmpty()) task.get().cancel();
+        }, 1L, 1L));
+    }
+
+    private void sendTransferError(@NotNull CommandSender sender, @NotNull Currency currency, @NotNull CoinsUser target, @NotNull BalanceTransaction.Status status) {
+        switch (status) {
+            case NOT_ENOUGH -> currency.sendPrefixed(Lang.CURRENCY_SEND_ERROR_NOT_ENOUGH, sender);
+            case LIMIT_EXCEEDED -> currency.sendPrefixed(Lang.CURRENCY_SEND_ERROR_LIMIT_EXCEED, sender, replacer -> replacer
+                .replace(Placeholders.PLAYER_NAME, target.getName())
+                .replace(Placeholders.GENERIC_MAX, currency.format(currency.getMaxValue()))
+            );
+            case CANCELLED -> Lang.CURRENCY_OPERATION_CANCELLED.message().send(sender);
+            default -> {}
+        }
     }
 
     public void showBalance(@NotNull CommandSender sender, @NotNull Currency currency) {
@@ -357,6 +734,7 @@ public class CurrencyManager extends AbstractManager<CoinsEnginePlugin> {
 
             CurrencySettings settings = user.getSettings(currency);
             settings.setPaymentsEnabled(!settings.isPaymentsEnabled());
+            user.markSettingsDirty();
             this.userManager.save(user);
 
             if (!isOwn) {
@@ -382,16 +760,24 @@ public class CurrencyManager extends AbstractManager<CoinsEnginePlugin> {
 
     @NotNull
     public OperationResult give(@NotNull OperationContext context, @NotNull CoinsUser user, @NotNull Currency currency, double amount) {
-        if (!this.assertOperationsEnabled(context)) return OperationResult.FAILURE;
+        if (!this.assertOperationsEnabled(context, user)) return OperationResult.FAILURE;
 
         OperationExecutor executor = context.getExecutor();
 
-        user.addBalance(currency, amount);
+        double delta; // Measured under the balance lock, so concurrent changes are not published as part of it.
+        RedisBalanceStore store = this.getBalanceStore();
+        if (store != null) {
+            Double stored = this.callStore(() -> store.add(user, currency, Math.abs(amount)));
+            if (stored == null) return OperationResult.FAILURE;
+
+            delta = this.applyStoredBalance(user, currency, stored);
+        }
+        else delta = user.edit(currency, balance -> balance.add(currency, amount)).delta();
         this.userManager.save(user);
         // Custom: publish Redis sync
         this.plugin.getRedisSyncManager().ifPresent(sync -> {
             sync.publishCurrencyOperation(user.getId(), currency.getId(), "give", amount, user.getBalance(currency));
-            sync.publishUserBalance(user);
+            sync.publishBalanceDelta(user, currency, delta);
         });
 
         if (this.logger != null && context.shouldNotifyLogger()) {
@@ -425,29 +811,42 @@ public class CurrencyManager extends AbstractManager<CoinsEnginePlugin> {
 
     @NotNull
     public OperationResult giveAll(@NotNull OperationContext context, @NotNull Currency currency, double amount) {
-        if (!this.assertOperationsEnabled(context)) return OperationResult.FAILURE;
+        return this.giveAll(context, currency, amount, playerId -> true) < 0 ? OperationResult.FAILURE : OperationResult.SUCCESS;
+    }
+
+    /**
+     * Adds the amount to balances of online players on this server that pass the filter.
+     *
+     * @param filter Filter by player ID.
+     * @return Amount of affected players, or -1 if operations are disabled.
+     */
+    public int giveAll(@NotNull OperationContext context, @NotNull Currency currency, double amount, @NotNull Predicate<UUID> filter) {
+        if (!this.assertOperationsEnabled(context)) return -1;
 
         OperationExecutor executor = context.getExecutor();
-        Set<CoinsUser> users = this.userManager.getLoaded();
 
-        users.forEach(user -> {
-            Player target = user.getPlayer();
-            if (target == null) return; // Only online players should be affected.
+        Map<CoinsUser, Double> targets = new HashMap<>();
+        this.userManager.getLoaded().forEach(user -> {
+            if (user.getPlayer() == null) return; // Only online players should be affected.
+            if (this.isUserLocked(user.getId())) return; // Balance is being reset.
+            if (!filter.test(user.getId())) return;
 
-            user.addBalance(currency, amount);
-            this.userManager.save(user);
-
-            if (context.shouldNotify(NotificationTarget.USER)) {
-                currency.sendPrefixed(Lang.COMMAND_CURRENCY_GIVE_NOTIFY, target, replacer -> replacer
-                    .replace(Placeholders.GENERIC_AMOUNT, () -> currency.format(amount))
-                    .replace(Placeholders.GENERIC_BALANCE, () -> currency.format(user.getBalance(currency)))
-                );
-            }
+            targets.put(user, amount);
         });
 
+        Map<CoinsUser, Double> deltas = this.applyBulk(currency, BulkOperation.GIVE, targets);
+        List<CoinsUser> affected = List.copyOf(deltas.keySet());
+
+        this.plugin.runTaskAsync(() -> this.saveBulk(currency, affected));
+        this.plugin.getRedisSyncManager().ifPresent(sync -> sync.publishBalanceChanges(currency, deltas, false));
+
+        if (context.shouldNotify(NotificationTarget.USER)) {
+            this.sendBulkNotifications(currency, Lang.COMMAND_CURRENCY_GIVE_NOTIFY, targets, affected);
+        }
+
         if (this.logger != null && context.shouldNotifyLogger()) {
-            this.logger.addEntry(context, "[%s] %s gave %s to all online players. Affected players (%s): %s"
-                .formatted(currency.getId(), executor.getName(), currency.format(amount), users.size(), users.stream().map(AbstractUser::getName).collect(Collectors.joining(", ")))
+            this.logger.addEntry(context, "[%s] %s gave %s to all online players. Affected players: %s"
+                .formatted(currency.getId(), executor.getName(), currency.format(amount), affected.size())
             );
         }
 
@@ -459,7 +858,7 @@ public class CurrencyManager extends AbstractManager<CoinsEnginePlugin> {
             });
         }
 
-        return OperationResult.SUCCESS;
+        return affected.size();
     }
 
     @NotNull
@@ -469,16 +868,24 @@ public class CurrencyManager extends AbstractManager<CoinsEnginePlugin> {
 
     @NotNull
     public OperationResult remove(@NotNull OperationContext context, @NotNull CoinsUser user, @NotNull Currency currency, double amount) {
-        if (!this.assertOperationsEnabled(context)) return OperationResult.FAILURE;
+        if (!this.assertOperationsEnabled(context, user)) return OperationResult.FAILURE;
 
         OperationExecutor executor = context.getExecutor();
 
-        user.removeBalance(currency, amount);
+        double delta; // Measured under the balance lock, so concurrent changes are not published as part of it.
+        RedisBalanceStore store = this.getBalanceStore();
+        if (store != null) {
+            Double stored = this.callStore(() -> store.withdraw(user, currency, Math.abs(amount)));
+            if (stored == null) return OperationResult.FAILURE; // Not enough funds in the store, or it is unavailable.
+
+            delta = this.applyStoredBalance(user, currency, stored);
+        }
+        else delta = user.edit(currency, balance -> balance.remove(currency, amount)).delta();
         this.userManager.save(user);
         // Custom: publish Redis sync
         this.plugin.getRedisSyncManager().ifPresent(sync -> {
             sync.publishCurrencyOperation(user.getId(), currency.getId(), "remove", amount, user.getBalance(currency));
-            sync.publishUserBalance(user);
+            sync.publishBalanceDelta(user, currency, delta);
         });
 
         if (this.logger != null && context.shouldNotifyLogger()) {
@@ -515,16 +922,23 @@ public class CurrencyManager extends AbstractManager<CoinsEnginePlugin> {
 
     @NotNull
     public OperationResult set(@NotNull OperationContext context, @NotNull CoinsUser user, @NotNull Currency currency, double amount) {
-        if (!this.assertOperationsEnabled(context)) return OperationResult.FAILURE;
+        if (!this.assertOperationsEnabled(context, user)) return OperationResult.FAILURE;
 
         OperationExecutor executor = context.getExecutor();
 
-        user.setBalance(currency, amount);
+        RedisBalanceStore store = this.getBalanceStore();
+        if (store != null) {
+            Double stored = this.callStore(() -> store.set(user, currency, currency.floorAndLimit(amount)));
+            if (stored == null) return OperationResult.FAILURE;
+
+            this.applyStoredBalance(user, currency, stored);
+        }
+        else user.setBalance(currency, amount);
         this.userManager.save(user);
         // Custom: publish Redis sync
         this.plugin.getRedisSyncManager().ifPresent(sync -> {
             sync.publishCurrencyOperation(user.getId(), currency.getId(), "set", amount, user.getBalance(currency));
-            sync.publishUserBalance(user);
+            sync.publishBalanceSet(user, currency);
         });
 
         if (this.logger != null && context.shouldNotifyLogger()) {
@@ -562,16 +976,23 @@ public class CurrencyManager extends AbstractManager<CoinsEnginePlugin> {
 
     @NotNull
     public OperationResult reset(@NotNull OperationContext context, @NotNull CoinsUser user, @NotNull Currency currency) {
-        if (!this.assertOperationsEnabled(context)) return OperationResult.FAILURE;
+        if (!this.assertOperationsEnabled(context, user)) return OperationResult.FAILURE;
 
         OperationExecutor executor = context.getExecutor();
 
-        user.resetBalance(currency);
+        RedisBalanceStore store = this.getBalanceStore();
+        if (store != null) {
+            Double stored = this.callStore(() -> store.set(user, currency, currency.getStartValue()));
+            if (stored == null) return OperationResult.FAILURE;
+
+            this.applyStoredBalance(user, currency, stored);
+        }
+        else user.resetBalance(currency);
         this.userManager.save(user);
         // Custom: publish Redis sync
         this.plugin.getRedisSyncManager().ifPresent(sync -> {
             sync.publishCurrencyOperation(user.getId(), currency.getId(), "reset", 0D, user.getBalance(currency));
-            sync.publishUserBalance(user);
+            sync.publishBalanceSet(user, currency);
         });
 
         if (this.logger != null && context.shouldNotifyLogger()) {
@@ -620,6 +1041,8 @@ public class CurrencyManager extends AbstractManager<CoinsEnginePlugin> {
         }
 
         CoinsUser fromUser = this.userManager.getOrFetch(sender);
+        if (!this.assertOperationsEnabled(context, fromUser)) return false;
+
         if (amount > fromUser.getBalance(currency)) {
             currency.sendPrefixed(Lang.CURRENCY_SEND_ERROR_NOT_ENOUGH, sender);
             return false;
@@ -630,6 +1053,7 @@ public class CurrencyManager extends AbstractManager<CoinsEnginePlugin> {
                 CoreLang.ERROR_INVALID_PLAYER.withPrefix(this.plugin).send(sender);
                 return;
             }
+            if (!this.assertOperationsEnabled(context, fromUser, targetUser)) return;
 
             CurrencySettings settings = targetUser.getSettings(currency);
             if (!settings.isPaymentsEnabled()) {
@@ -639,16 +1063,55 @@ public class CurrencyManager extends AbstractManager<CoinsEnginePlugin> {
                 return;
             }
 
-            targetUser.addBalance(currency, amount);
-            fromUser.removeBalance(currency, amount);
-
-            this.userManager.save(targetUser);
-            this.userManager.save(fromUser);
+            double targetBefore = targetUser.getBalance(currency);
+            double[] deltas = new double[2]; // Sender and target, measured under the balance locks.
+
+            RedisBalanceStore store = this.getBalanceStore();
+            if (store != null) {
+                if (!currency.isUnderLimit(targetBefore + amount)) {
+                    this.sendTransferError(sender, currency, targetUser, BalanceTransaction.Status.LIMIT_EXCEEDED);
+                    return;
+                }
+
+                double[] stored;
+                try {
+                    stored = store.transfer(fromUser, targetUser, currency, amount);
+                }
+                catch (Exception exception) {
+                    this.plugin.error("Could not transfer balance in Redis store: " + exception.getMessage());
+                    return;
+                }
+
+                if (stored == null) {
+                    // The script does not tell which check failed, so guess it by the local balances.
+                    if (fromUser.getBalance(currency) >= amount) {
+                        this.sendTransferError(sender, currency, targetUser, BalanceTransaction.Status.LIMIT_EXCEEDED);
+                    }
+                    else {
+                        currency.sendPrefixed(Lang.CURRENCY_SEND_ERROR_NOT_ENOUGH, sender);
+                    }
+                    return;
+                }
+
+                deltas[0] = this.applyStoredBalance(fromUser, currency, stored[0]);
+                deltas[1] = this.applyStoredBalance(targetUser, currency, stored[1]);
+                this.saveTransaction(Map.of(fromUser, Set.of(currency), targetUser, Set.of(currency)));
+            }
+            else {
+                BalanceTransaction transaction = BalanceTransaction.transfer(fromUser, targetUser, currency, amount);
+                BalanceTransaction.Status status = this.commit(transaction);
+                if (status != BalanceTransaction.Status.SUCCESS) {
+                    this.sendTransferError(sender, currency, targetUser, status);
+                    return;
+                }
+                deltas[0] = transaction.getDelta(0);
+                deltas[1] = transaction.getDelta(1);
+            }
 
             // Custom: publish Redis sync + cross-server payment notify
             this.plugin.getRedisSyncManager().ifPresent(sync -> {
-                sync.publishUserBalance(fromUser);
-                sync.publishUserBalance(targetUser);
+                sync.publishBalanceDelta(fromUser, currency, deltas[0]);
+                sync.publishBalanceDelta(targetUser, currency, deltas[1]);
                 sync.publishPaymentNotification(targetUser.getId(), sender.getName(), currency.getId(), amount, targetUser.getBalance(currency));
             });
 
@@ -696,6 +1159,8 @@ public class CurrencyManager extends AbstractManager<CoinsEnginePlugin> {
         }
 
         CoinsUser user = this.userManager.getOrFetch(player);
+        if (!this.assertOperationsEnabled(context, user)) return false;
+
         if (user.getBalance(sourceCurrency) < amount) {
             sourceCurrency.sendPrefixed(Lang.CURRENCY_EXCHANGE_ERROR_LOW_BALANCE, player, replacer -> replacer
                 .replace(Placeholders.GENERIC_AMOUNT, sourceCurrency.format(amount))
@@ -725,11 +1190,55 @@ public class CurrencyManager extends AbstractManager<CoinsEnginePlugin> {
             return false;
         }
 
-        user.removeBalance(sourceCurrency, amount);
-        user.addBalance(targetCurrency, result);
-        this.userManager.save(user);
+        double[] deltas = new double[2]; // Source and target, measured under the balance locks.
+
+        RedisBalanceStore store = this.getBalanceStore();
+        if (store != null) {
+            double[] stored;
+            try {
+                stored = store.exchange(user, sourceCurrency, targetCurrency, amount, result);
+            }
+            catch (Exception exception) {
+                this.plugin.error("Could not exchange balance in Redis store: " + exception.getMessage());
+                return false;
+            }
+
+            if (stored == null) {
+                sourceCurrency.sendPrefixed(Lang.CURRENCY_EXCHANGE_ERROR_LOW_BALANCE, player, replacer -> replacer
+                    .replace(Placeholders.GENERIC_AMOUNT, sourceCurrency.format(amount))
+                );
+                return false;
+            }
+
+            deltas[0] = this.applyStoredBalance(user, sourceCurrency, stored[0]);
+            deltas[1] = this.applyStoredBalance(user, targetCurrency, stored[1]);
+            this.saveTransaction(Map.of(user, Set.of(sourceCurrency, targetCurrency)));
+        }
+        else {
+            BalanceTransaction transaction = new BalanceTransaction().withdraw(user, sourceCurrency, amount).deposit(user, targetCurrency, result);
+            BalanceTransaction.Status status = this.commit(transaction);
+
+            switch (status) {
+                case NOT_ENOUGH -> sourceCurrency.sendPrefixed(Lang.CURRENCY_EXCHANGE_ERROR_LOW_BALANCE, player, replacer -> replacer
+                    .replace(Placeholders.GENERIC_AMOUNT, sourceCurrency.format(amount))
+                );
+                case LIMIT_EXCEEDED -> targetCurrency.sendPrefixed(Lang.CURRENCY_EXCHANGE_ERROR_LIMIT_EXCEED, player, replacer -> replacer
+                    .replace(Placeholders.GENERIC_AMOUNT, targetCurrency.format(result))
+                    .replace(Placeholders.GENERIC_MAX, targetCurrency.format(targetCurrency.getMaxValue()))
+                );
+                case CANCELLED -> Lang.CURRENCY_OPERATION_CANCELLED.message().send(player);
+                default -> {}
+            }
+            if (status != BalanceTransaction.Status.SUCCESS) return false;
+
+            deltas[0] = transaction.getDelta(0);
+            deltas[1] = transaction.getDelta(1);
+        }
         // Custom: publish Redis sync
-        this.plugin.getRedisSyncManager().ifPresent(sync -> sync.publishUserBalance(user));
+        this.plugin.getRedisSyncManager().ifPresent(sync -> {
+            sync.publishBalanceDelta(user, sourceCurrency, deltas[0]);
+            sync.publishBalanceDelta(user, targetCurrency, deltas[1]);
+        });
 
         sourceCurrency.sendPrefixed(Lang.CURRENCY_EXCHANGE_SUCCESS, player, replacer -> replacer
             .replace(Placeholders.GENERIC_BALANCE, sourceCurrency.format(amount))
@@ -6,9 +6,15 @@ import su.nightexpress.coinsengine.api.currency.Currency;
 import su.nightexpress.nightcore.util.LowerCase;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class CurrencyRegistry {
 
+    // Currency ID -> Dense slot index. Slots are never reused, so they stay valid across reloads.
+    private static final Map<String, Integer> SLOTS    = new ConcurrentHashMap<>();
+    private static final List<String>         SLOT_IDS = new CopyOnWriteArrayList<>();
+
     //private final CoinsEnginePlugin plugin;
     private final Map<String, Currency> currencyMap;
 
@@ -25,7 +31,43 @@ public class CurrencyRegistry {
         this.getCurrencies().stream().filter(Predicate.not(Currency::isPrimary)).forEach(this::remove);
     }*/
 
+    /**
+     * Returns dense integer slot of the given currency ID, assigning a new one if there is none yet.
+     *
+     * @param id Currency ID.
+     * @return Slot index.
+     */
+    public static int slotOf(@NotNull String id) {
+        Integer slot = SLOTS.get(id);
+        if (slot != null) return slot;
+
+        synchronized (SLOT_IDS) {
+            return SLOTS.computeIfAbsent(id, k -> {
+                SLOT_IDS.add(k);
+                return SLOT_IDS.size() - 1;
+            });
+        }
+    }
+
+    /**
+     * @param id Currency ID.
+     * @return Slot index of the given currency ID, or -1 if there is none.
+     */
+    public static int findSlot(@NotNull String id) {
+        return SLOTS.getOrDefault(id, -1);
+    }
+
+    @Nullable
+    public static String getSlotId(int slot) {
+        return slot >= 0 && slot < SLOT_IDS.size() ? SLOT_IDS.get(slot) : null;
+    }
+
+    public static int getSlotCount() {
+        return SLOT_IDS.size();
+    }
+
     public void add(@NotNull Currency currency) {
+        currency.getSlot(); // Assign slots in registration order.
         this.currencyMap.put(currency.getId(), currency);
 
         currency.onRegister();
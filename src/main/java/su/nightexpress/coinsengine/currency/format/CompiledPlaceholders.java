@@ -0,0 +1,108 @@
+package su.nightexpress.coinsengine.currency.format;
+
+import org.jetbrains.annotations.NotNull;
+import su.nightexpress.nightcore.util.placeholder.PlaceholderEntry;
+import su.nightexpress.nightcore.util.placeholder.PlaceholderList;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Placeholder replacer with values resolved once, at compile time.
+ * - Text is replaced in a single pass, and is returned as is (no copy) when it has no known placeholders.
+ * - Result is the same as of {@link PlaceholderList#replacer(Object)}, which replaces entries one by one: a value
+ *   that contains keys of the following entries is resolved with them in advance.
+ * Instances are immutable and must be compiled again when the source changes.
+ */
+public final class CompiledPlaceholders implements UnaryOperator<String> {
+
+    private final String[] keys;
+    private final String[] values;
+
+    private CompiledPlaceholders(@NotNull String[] keys, @NotNull String[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    @NotNull
+    public static <T> CompiledPlaceholders compile(@NotNull PlaceholderList<T> list, @NotNull T source) {
+        List<PlaceholderEntry<T>> entries = list.getEntries();
+        int size = entries.size();
+
+        String[] keys = new String[size];
+        String[] values = new String[size];
+
+        for (int index = size - 1; index >= 0; index--) {
+            PlaceholderEntry<T> entry = entries.get(index);
+            String value = String.valueOf(entry.get(source));
+
+            keys[index] = entry.getKey();
+            values[index] = replace(value, keys, values, index + 1);
+        }
+
+        return new CompiledPlaceholders(keys, values);
+    }
+
+    @Override
+    @NotNull
+    public String apply(@NotNull String text) {
+        return replace(text, this.keys, this.values, 0);
+    }
+
+    /**
+     * Writes the text with replaced placeholders to the builder.
+     */
+    public void appendTo(@NotNull StringBuilder builder, @NotNull String text) {
+        int length = text.length();
+        int last = 0;
+        int index = text.indexOf('%');
+
+        while (index >= 0 && index < length - 1) {
+            int key = match(text, index, this.keys, 0);
+            if (key < 0) {
+                index = text.indexOf('%', index + 1);
+                continue;
+            }
+
+            builder.append(text, last, index).append(this.values[key]);
+            last = index + this.keys[key].length();
+            index = text.indexOf('%', last);
+        }
+
+        builder.append(text, last, length);
+    }
+
+    @NotNull
+    private static String replace(@NotNull String text, @NotNull String[] keys, @NotNull String[] values, int from) {
+        int index = text.indexOf('%');
+        if (index < 0 || from >= keys.length) return text;
+
+        StringBuilder builder = null;
+        int length = text.length();
+        int last = 0;
+
+        while (index >= 0 && index < length - 1) {
+            int key = match(text, index, keys, from);
+            if (key < 0) {
+                index = text.indexOf('%', index + 1);
+                continue;
+            }
+
+            if (builder == null) builder = new StringBuilder(length + 16);
+            builder.append(text, last, index).append(values[key]);
+            last = index + keys[key].length();
+            index = text.indexOf('%', last);
+        }
+
+        if (builder == null) return text;
+
+        return builder.append(text, last, length).toString();
+    }
+
+    private static int match(@NotNull String text, int index, @NotNull String[] keys, int from) {
+        for (int key = from; key < keys.length; key++) {
+            if (text.startsWith(keys[key], index)) return key;
+        }
+        return -1;
+    }
+}
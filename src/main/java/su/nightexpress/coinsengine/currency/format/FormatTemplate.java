@@ -0,0 +1,90 @@
+package su.nightexpress.coinsengine.currency.format;
+
+import me.clip.placeholderapi.PlaceholderAPI;
+import org.jetbrains.annotations.NotNull;
+import su.nightexpress.coinsengine.Placeholders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Currency format parsed into text segments around the {@link Placeholders#GENERIC_AMOUNT} placeholder.
+ * - All other placeholders (currency and player unrelated PlaceholderAPI ones) are resolved when the template is compiled.
+ * - Templates with PlaceholderAPI placeholders expire after a short time, so their values are still updated.
+ * Instances are immutable and safe to share between threads.
+ */
+public final class FormatTemplate {
+
+    private final String[] segments; // Text before the first amount, between amounts, and after the last one.
+    private final int      length;
+    private final boolean  placeholderAPI;
+    private final long     compiled;
+
+    private FormatTemplate(@NotNull String[] segments, boolean placeholderAPI) {
+        this.segments = segments;
+        this.placeholderAPI = placeholderAPI;
+        this.compiled = System.currentTimeMillis();
+
+        int length = 0;
+        for (String segment : segments) {
+            length += segment.length();
+        }
+        this.length = length;
+    }
+
+    /**
+     * @param format Format string.
+     * @param placeholders Currency placeholders replacer.
+     * @param placeholderAPI Whether to apply PlaceholderAPI placeholders (not bound to a player).
+     */
+    @NotNull
+    public static FormatTemplate compile(@NotNull String format, @NotNull UnaryOperator<String> placeholders, boolean placeholderAPI) {
+        if (placeholderAPI) {
+            format = PlaceholderAPI.setPlaceholders(null, format);
+        }
+        format = placeholders.apply(format);
+
+        List<String> segments = new ArrayList<>();
+        String key = Placeholders.GENERIC_AMOUNT;
+        int last = 0;
+        int index;
+
+        while ((index = format.indexOf(key, last)) >= 0) {
+            segments.add(format.substring(last, index));
+            last = index + key.length();
+        }
+        segments.add(format.substring(last));
+
+        return new FormatTemplate(segments.toArray(new String[0]), placeholderAPI);
+    }
+
+    public boolean isPlaceholderAPI() {
+        return this.placeholderAPI;
+    }
+
+    /**
+     * @param cacheTime Time (in milliseconds) for which PlaceholderAPI values are cached.
+     * @return True if template has PlaceholderAPI values older than the cache time.
+     */
+    public boolean isExpired(long cacheTime) {
+        return this.placeholderAPI && System.currentTimeMillis() - this.compiled >= cacheTime;
+    }
+
+    @NotNull
+    public String format(@NotNull String amount) {
+        if (this.segments.length == 1) return this.segments[0];
+        if (this.segments.length == 2 && this.segments[1].isEmpty()) return this.segments[0].concat(amount);
+
+        StringBuilder builder = new StringBuilder(this.length + amount.length() * (this.segments.length - 1));
+        this.appendTo(builder, amount);
+        return builder.toString();
+    }
+
+    public void appendTo(@NotNull StringBuilder builder, @NotNull String amount) {
+        builder.append(this.segments[0]);
+        for (int index = 1; index < this.segments.length; index++) {
+            builder.append(amount).append(this.segments[index]);
+        }
+    }
+}
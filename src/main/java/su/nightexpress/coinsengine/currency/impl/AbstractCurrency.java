@@ -1,6 +1,5 @@
 package su.nightexpress.coinsengine.currency.impl;
 
-import me.clip.placeholderapi.PlaceholderAPI;
 import org.bukkit.Material;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
@@ -12,6 +11,9 @@ import su.nightexpress.coinsengine.Placeholders;
 import su.nightexpress.coinsengine.api.currency.Currency;
 import su.nightexpress.coinsengine.config.Config;
 import su.nightexpress.coinsengine.config.Perms;
+import su.nightexpress.coinsengine.currency.CurrencyRegistry;
+import su.nightexpress.coinsengine.currency.format.CompiledPlaceholders;
+import su.nightexpress.coinsengine.currency.format.FormatTemplate;
 import su.nightexpress.nightcore.config.ConfigValue;
 import su.nightexpress.nightcore.config.FileConfig;
 import su.nightexpress.nightcore.locale.entry.MessageLocale;
@@ -30,7 +32,6 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Consumer;
-import java.util.function.Function;
 import java.util.function.UnaryOperator;
 
 public abstract class AbstractCurrency implements Currency, ConfigBacked {
@@ -39,6 +40,8 @@ public abstract class AbstractCurrency implements Currency, ConfigBacked {
     protected final String id;
     protected final Map<String, Double> exchangeRates;
 
+    private int slot = -1;
+
     protected String    name;
     protected String    symbol;
     protected String    prefix;
@@ -63,6 +66,11 @@ public abstract class AbstractCurrency implements Currency, ConfigBacked {
 
     protected String messagePrefix;
 
+    // Compiled currency placeholders and formats. Reset by setters, compiled again on demand.
+    private volatile CompiledPlaceholders placeholders;
+    private volatile FormatTemplate       formatTemplate;
+    private volatile FormatTemplate       formatShortTemplate;
+
     public AbstractCurrency(@NotNull Path path, @NotNull String id) {
         this.path = path;
         this.id = id;
@@ -245,7 +253,22 @@ public abstract class AbstractCurrency implements Currency, ConfigBacked {
     @NotNull
     @Override
     public UnaryOperator<String> replacePlaceholders() {
-        return Placeholders.forCurrency(this);
+        CompiledPlaceholders placeholders = this.placeholders;
+        if (placeholders == null) {
+            placeholders = CompiledPlaceholders.compile(Placeholders.CURRENCY, this);
+            this.placeholders = placeholders;
+        }
+        return placeholders;
+    }
+
+    private void invalidatePlaceholders() {
+        this.placeholders = null;
+        this.invalidateFormats();
+    }
+
+    private void invalidateFormats() {
+        this.formatTemplate = null;
+        this.formatShortTemplate = null;
     }
 
     @Override
@@ -335,22 +358,37 @@ public abstract class AbstractCurrency implements Currency, ConfigBacked {
     @Override
     @NotNull
     public String format(double balance) {
-        return this.getFormatted(this.format, balance, this::formatValue);
+        return this.getFormatTemplate(false).format(this.formatValue(balance));
+    }
+
+    @Override
+    public void format(double balance, @NotNull StringBuilder builder) {
+        this.getFormatTemplate(false).appendTo(builder, this.formatValue(balance));
     }
 
     @Override
     @NotNull
     public String formatCompact(double balance) {
-        return this.getFormatted(this.formatShort, balance, value -> this.compacted(value).format());
+        return this.getFormatTemplate(true).format(this.compacted(balance).format());
+    }
+
+    @Override
+    public void formatCompact(double balance, @NotNull StringBuilder builder) {
+        this.getFormatTemplate(true).appendTo(builder, this.compacted(balance).format());
     }
 
     @NotNull
-    private String getFormatted(@NotNull String originalFormat, double balance, @NotNull Function<Double, String> valueFormatter) {
-        if (Config.useCurrencyFormatPAPI()) {
-            originalFormat = PlaceholderAPI.setPlaceholders(null, originalFormat);
+    private FormatTemplate getFormatTemplate(boolean compact) {
+        boolean usePAPI = Config.useCurrencyFormatPAPI();
+        FormatTemplate template = compact ? this.formatShortTemplate : this.formatTemplate;
+
+        if (template == null || template.isPlaceholderAPI() != usePAPI || template.isExpired(Config.GENERAL_PLACEHOLDER_API_FORMAT_CACHE_TIME.get())) {
+            template = FormatTemplate.compile(compact ? this.formatShort : this.format, this.replacePlaceholders(), usePAPI);
+            if (compact) this.formatShortTemplate = template;
+            else this.formatTemplate = template;
         }
 
-        return this.replacePlaceholders().apply(originalFormat).replace(Placeholders.GENERIC_AMOUNT, valueFormatter.apply(balance));
+        return template;
     }
 
     @Override
@@ -365,6 +403,14 @@ public abstract class AbstractCurrency implements Currency, ConfigBacked {
         return this.id;
     }
 
+    @Override
+    public int getSlot() {
+        if (this.slot < 0) {
+            this.slot = CurrencyRegistry.slotOf(this.id);
+        }
+        return this.slot;
+    }
+
     @NotNull
     @Override
     public String getName() {
@@ -374,6 +420,7 @@ public abstract class AbstractCurrency implements Currency, ConfigBacked {
     @Override
     public void setName(@NotNull String name) {
         this.name = name;
+        this.invalidatePlaceholders();
     }
 
     @NotNull
@@ -385,6 +432,7 @@ public abstract class AbstractCurrency implements Currency, ConfigBacked {
     @Override
     public void setPrefix(@NotNull String prefix) {
         this.prefix = prefix;
+        this.invalidatePlaceholders();
     }
 
     @NotNull
@@ -396,6 +444,7 @@ public abstract class AbstractCurrency implements Currency, ConfigBacked {
     @Override
     public void setSymbol(@NotNull String symbol) {
         this.symbol = symbol;
+        this.invalidatePlaceholders();
     }
 
     @NotNull
@@ -407,6 +456,7 @@ public abstract class AbstractCurrency implements Currency, ConfigBacked {
     @Override
     public void setFormat(@NotNull String format) {
         this.format = format;
+        this.invalidateFormats();
     }
 
     @NotNull
@@ -418,6 +468,7 @@ public abstract class AbstractCurrency implements Currency, ConfigBacked {
     @Override
     public void setFormatShort(@NotNull String formatShort) {
         this.formatShort = formatShort.replace("%currency_short_symbol%", "");
+        this.invalidateFormats();
     }
 
     @NotNull
@@ -439,6 +490,7 @@ public abstract class AbstractCurrency implements Currency, ConfigBacked {
     @Override
     public void setCommandAliases(String[] commandAliases) {
         this.commandAliases = commandAliases;
+        this.invalidatePlaceholders();
     }
 
     @NotNull
@@ -9,18 +9,28 @@ import org.bukkit.plugin.ServicesManager;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import su.nightexpress.coinsengine.CoinsEnginePlugin;
+import su.nightexpress.coinsengine.config.Config;
 import su.nightexpress.coinsengine.config.Lang;
 import su.nightexpress.coinsengine.currency.CurrencyManager;
 import su.nightexpress.coinsengine.currency.operation.NotificationTarget;
 import su.nightexpress.coinsengine.currency.operation.OperationContext;
 import su.nightexpress.coinsengine.currency.operation.OperationResult;
+import su.nightexpress.coinsengine.data.BalanceSnapshotCache;
+import su.nightexpress.coinsengine.data.BalanceSnapshotCache.ReadOutcome;
+import su.nightexpress.coinsengine.data.BalanceSnapshotCache.Snapshot;
+import su.nightexpress.coinsengine.data.CacheMissPolicy;
 import su.nightexpress.coinsengine.data.DataHandler;
 import su.nightexpress.coinsengine.user.UserManager;
 import su.nightexpress.coinsengine.data.impl.CoinsUser;
+import su.nightexpress.nightcore.util.LowerCase;
 
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 public class EconomyCurrency extends AbstractCurrency implements Economy {
 
@@ -113,8 +123,7 @@ public class EconomyCurrency extends AbstractCurrency implements Economy {
 
     @Override
     public double getBalance(OfflinePlayer player) {
-        CoinsUser user = this.plugin.getUserManager().getOrFetch(player.getUniqueId());
-        return this.getBalance(user);
+        return this.readBalance(player.getUniqueId());
     }
 
     @Override
@@ -124,12 +133,86 @@ public class EconomyCurrency extends AbstractCurrency implements Economy {
 
     @Override
     public double getBalance(String playerName) {
-        CoinsUser user = this.plugin.getUserManager().getOrFetch(playerName);
-        return this.getBalance(user);
+        return this.readBalance(playerName);
     }
 
-    private double getBalance(@Nullable CoinsUser user) {
-        return user == null ? 0D : user.getBalance(this);
+    private double readBalance(@NotNull UUID playerId) {
+        UserManager userManager = this.plugin.getUserManager();
+
+        CoinsUser user = userManager.getLoaded(playerId);
+        if (user != null) {
+            this.plugin.getSnapshotCache().count(ReadOutcome.LOADED);
+            return user.getBalance(this);
+        }
+
+        Snapshot snapshot = this.plugin.getSnapshotCache().getSnapshot(playerId, this.getId());
+        return this.readSnapshot(playerId, snapshot, () -> userManager.getOrFetch(playerId), () -> userManager.getOrFetchAsync(playerId));
+    }
+
+    private double readBalance(@NotNull String playerName) {
+        UserManager userManager = this.plugin.getUserManager();
+        BalanceSnapshotCache cache = this.plugin.getSnapshotCache();
+
+        CoinsUser user = userManager.getLoaded(playerName);
+        if (user != null) {
+            cache.count(ReadOutcome.LOADED);
+            return user.getBalance(this);
+        }
+
+        UUID playerId = cache.getId(playerName);
+        Snapshot snapshot = playerId == null ? null : cache.getSnapshot(playerId, this.getId());
+        Object key = playerId == null ? LowerCase.INTERNAL.apply(playerName) : playerId;
+        return this.readSnapshot(key, snapshot, () -> userManager.getOrFetch(playerName), () -> userManager.getUserDataAsync(playerName));
+    }
+
+    /**
+     * Serves the balance from a fresh snapshot. On a miss, async callers load the user right away, while the main thread
+     * follows the cache miss policy and warms the snapshot up in background.
+     */
+    private double readSnapshot(@NotNull Object key,
+                                @Nullable Snapshot snapshot,
+                                @NotNull Supplier<CoinsUser> fetcher,
+                                @NotNull Supplier<CompletableFuture<CoinsUser>> asyncFetcher) {
+        BalanceSnapshotCache cache = this.plugin.getSnapshotCache();
+
+        long lifetime = TimeUnit.SECONDS.toMillis(Config.INTEGRATION_VAULT_SNAPSHOT_LIFETIME.get());
+        if (snapshot != null && snapshot.isFresh(lifetime)) {
+            cache.count(ReadOutcome.SNAPSHOT);
+            return snapshot.balance();
+        }
+
+        if (!Bukkit.isPrimaryThread()) {
+            cache.count(ReadOutcome.FETCHED);
+            return this.cacheBalance(fetcher.get());
+        }
+
+        CacheMissPolicy policy = Config.INTEGRATION_VAULT_CACHE_MISS_POLICY.get();
+        if (policy == CacheMissPolicy.BLOCK) {
+            cache.count(ReadOutcome.MISS_BLOCKED);
+            return this.cacheBalance(fetcher.get());
+        }
+
+        if (cache.startWarmUp(key)) {
+            asyncFetcher.get().whenComplete((user, error) -> {
+                cache.finishWarmUp(key);
+                if (user != null) this.cacheBalance(user);
+            });
+        }
+
+        if (policy == CacheMissPolicy.LAST_KNOWN && snapshot != null) {
+            cache.count(ReadOutcome.MISS_LAST_KNOWN);
+            return snapshot.balance();
+        }
+
+        cache.count(ReadOutcome.MISS_ZERO);
+        return 0D;
+    }
+
+    private double cacheBalance(@Nullable CoinsUser user) {
+        if (user == null) return 0D;
+
+        this.plugin.getSnapshotCache().updateFromUser(user, this.plugin.getCurrencyRegistry().getCurrencies());
+        return user.getBalance(this);
     }
 
 
@@ -163,8 +246,7 @@ public class EconomyCurrency extends AbstractCurrency implements Economy {
 
     @Override
     public boolean has(OfflinePlayer player, double amount) {
-        CoinsUser user = this.plugin.getUserManager().getOrFetch(player.getUniqueId());
-        return this.has(user, amount);
+        return this.readBalance(player.getUniqueId()) >= amount;
     }
 
     @Override
@@ -174,12 +256,7 @@ public class EconomyCurrency extends AbstractCurrency implements Economy {
 
     @Override
     public boolean has(String playerName, double amount) {
-        CoinsUser user = this.plugin.getUserManager().getOrFetch(playerName);
-        return this.has(user, amount);
-    }
-
-    private boolean has(@Nullable CoinsUser user, double amount) {
-        return user != null && user.hasEnough(this, amount);
+        return this.readBalance(playerName) >= amount;
     }
 
 
@@ -214,6 +291,7 @@ public class EconomyCurrency extends AbstractCurrency implements Economy {
 
         OperationResult result = this.plugin.getCurrencyManager().give(this.operationContext(), user, this, amount);
         EconomyResponse.ResponseType type = result == OperationResult.SUCCESS ? EconomyResponse.ResponseType.SUCCESS : EconomyResponse.ResponseType.FAILURE;
+        this.cacheBalance(user);
 
         return new EconomyResponse(amount, user.getBalance(this), type, null);
     }
@@ -254,6 +332,7 @@ public class EconomyCurrency extends AbstractCurrency implements Economy {
 
         OperationResult result = this.plugin.getCurrencyManager().remove(this.operationContext(), user, this, amount);
         EconomyResponse.ResponseType type = result == OperationResult.SUCCESS ? EconomyResponse.ResponseType.SUCCESS : EconomyResponse.ResponseType.FAILURE;
+        this.cacheBalance(user);
 
         return new EconomyResponse(amount, user.getBalance(this), type, null);
     }
@@ -0,0 +1,168 @@
+package su.nightexpress.coinsengine.currency.operation;
+
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+import su.nightexpress.coinsengine.api.currency.Currency;
+import su.nightexpress.coinsengine.api.event.ChangeBalanceEvent;
+import su.nightexpress.coinsengine.data.impl.CoinsUser;
+import su.nightexpress.coinsengine.user.BalanceLocks;
+
+import java.util.*;
+
+/**
+ * Set of balance changes (legs) applied all together or not at all.
+ * - Balance locks of all legs are taken in ascending stripe order, so transactions over the same users never deadlock.
+ * - Every leg is validated while locked: balance can not go below zero or above the max. balance of the currency.
+ * - ChangeBalanceEvent is called for every leg once all of them are applied and the locks are released. If any event
+ *   is cancelled, all legs are reverted, and legs already reported to listeners are reported again with the reverting
+ *   change, so monitoring listeners never keep a change that did not happen.
+ */
+public class BalanceTransaction {
+
+    public enum Status {
+        SUCCESS, NOT_ENOUGH, LIMIT_EXCEEDED, CANCELLED
+    }
+
+    private record Leg(@NotNull CoinsUser user, @NotNull Currency currency, double delta) {}
+
+    private final List<Leg> legs;
+
+    private double[] applied; // Balance difference by leg, set once committed.
+
+    public BalanceTransaction() {
+        this.legs = new ArrayList<>();
+        this.applied = new double[0];
+    }
+
+    /**
+     * Creates transaction that moves the amount from one user to another.
+     */
+    @NotNull
+    public static BalanceTransaction transfer(@NotNull CoinsUser from, @NotNull CoinsUser to, @NotNull Currency currency, double amount) {
+        return new BalanceTransaction().withdraw(from, currency, amount).deposit(to, currency, amount);
+    }
+
+    @NotNull
+    public BalanceTransaction withdraw(@NotNull CoinsUser user, @NotNull Currency currency, double amount) {
+        this.legs.add(new Leg(user, currency, -Math.abs(amount)));
+        return this;
+    }
+
+    @NotNull
+    public BalanceTransaction deposit(@NotNull CoinsUser user, @NotNull Currency currency, double amount) {
+        this.legs.add(new Leg(user, currency, Math.abs(amount)));
+        return this;
+    }
+
+    @NotNull
+    public Status commit() {
+        int[] stripes = this.legs.stream().mapToInt(leg -> BalanceLocks.stripeOf(leg.user.getId(), leg.currency)).sorted().distinct().toArray();
+        int size = this.legs.size();
+        double[] oldBalances = new double[size];
+        double[] newBalances = new double[size];
+
+        Status status = this.lockAndApply(stripes, 0, oldBalances, newBalances);
+        if (status != Status.SUCCESS) return status;
+
+        // Events are called without locks: listeners may edit other balances, which would take more locks.
+        for (int index = 0; index < size; index++) {
+            Leg leg = this.legs.get(index);
+            ChangeBalanceEvent event = new ChangeBalanceEvent(leg.user, leg.currency, oldBalances[index], newBalances[index]);
+            Bukkit.getPluginManager().callEvent(event);
+
+            if (event.isCancelled()) {
+                this.revert(size, oldBalances, newBalances);
+                this.notifyReverted(index, oldBalances, newBalances);
+                return Status.CANCELLED;
+            }
+        }
+
+        this.legs.forEach(leg -> leg.user.markDirty(leg.currency));
+        this.applied = new double[size];
+        for (int index = 0; index < size; index++) {
+            this.applied[index] = newBalances[index] - oldBalances[index];
+        }
+        return Status.SUCCESS;
+    }
+
+    @NotNull
+    private Status lockAndApply(int[] stripes, int index, double[] oldBalances, double[] newBalances) {
+        if (index == stripes.length) return this.apply(oldBalances, newBalances);
+
+        synchronized (BalanceLocks.lockAt(stripes[index])) {
+            return this.lockAndApply(stripes, index + 1, oldBalances, newBalances);
+        }
+    }
+
+    /**
+     * Validates and applies all legs. Must be called with all locks taken.
+     */
+    @NotNull
+    private Status apply(double[] oldBalances, double[] newBalances) {
+        int applied = 0;
+
+        for (Leg leg : this.legs) {
+            double oldBalance = leg.user.getBalance(leg.currency);
+            double newBalance = oldBalance + leg.delta;
+
+            Status status = null;
+            if (newBalance < 0D) status = Status.NOT_ENOUGH;
+            else if (!leg.currency.isUnderLimit(newBalance)) status = Status.LIMIT_EXCEEDED;
+
+            if (status != null) {
+                this.revert(applied, oldBalances, newBalances);
+                return status;
+            }
+
+            leg.user.getBalance().set(leg.currency, newBalance);
+            oldBalances[applied] = oldBalance;
+            newBalances[applied] = leg.user.getBalance(leg.currency);
+            applied++;
+        }
+
+        return Status.SUCCESS;
+    }
+
+    /**
+     * Reverts the first applied legs in reverse order. If a balance was changed by anything else meanwhile, only the
+     * difference made by the leg is taken back, so that other change is kept.
+     */
+    private void revert(int applied, double[] oldBalances, double[] newBalances) {
+        for (int index = applied - 1; index >= 0; index--) {
+            Leg leg = this.legs.get(index);
+            if (leg.user.getBalance().compareAndSet(leg.currency, newBalances[index], oldBalances[index])) continue;
+
+            double delta = newBalances[index] - oldBalances[index];
+            leg.user.getBalance().update(leg.currency, balance -> balance - delta);
+        }
+    }
+
+    /**
+     * Calls ChangeBalanceEvent with the reverting change for the first legs, which were reported as applied before.
+     * The revert is already done, so these events can not be cancelled.
+     */
+    private void notifyReverted(int reported, double[] oldBalances, double[] newBalances) {
+        for (int index = 0; index < reported; index++) {
+            Leg leg = this.legs.get(index);
+            Bukkit.getPluginManager().callEvent(new ChangeBalanceEvent(leg.user, leg.currency, newBalances[index], oldBalances[index]));
+        }
+    }
+
+    /**
+     * @param index Leg index, in the order legs were added.
+     * @return Balance difference made by the leg, measured under the locks. Zero if the transaction was not committed.
+     */
+    public double getDelta(int index) {
+        return index < this.applied.length ? this.applied[index] : 0D;
+    }
+
+    /**
+     * @return Currencies changed by this transaction, by user.
+     */
+    @NotNull
+    public Map<CoinsUser, Set<Currency>> getChanges() {
+        Map<CoinsUser, Set<Currency>> changes = new LinkedHashMap<>();
+        this.legs.forEach(leg -> changes.computeIfAbsent(leg.user, k -> new HashSet<>()).add(leg.currency));
+        return changes;
+    }
+}
@@ -0,0 +1,10 @@
+package su.nightexpress.coinsengine.currency.operation;
+
+public enum BulkOperation {
+    /** Adds the amount to the balance. */
+    GIVE,
+    /** Removes the amount from the balance. */
+    REMOVE,
+    /** Sets the balance to the amount. */
+    SET
+}
@@ -0,0 +1,126 @@
+package su.nightexpress.coinsengine.data;
+
+import org.jetbrains.annotations.NotNull;
+import su.nightexpress.coinsengine.CoinsEnginePlugin;
+import su.nightexpress.coinsengine.data.impl.CoinsUser;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind queue for changed users.
+ * - Multiple saves of the same user between two flushes are coalesced into a single row write.
+ * - Only columns changed since the previous write are updated.
+ * - Pending users are written in batches of the configured size.
+ * - Flushes are serialized, so a timer flush and a shutdown flush never write the same user twice in parallel.
+ */
+public class BalanceFlusher {
+
+    private final CoinsEnginePlugin      plugin;
+    private final DataHandler            dataHandler;
+    private final Map<UUID, CoinsUser>   pending;
+    private final int                    batchSize;
+    private final Object                 flushLock;
+
+    private final AtomicLong flushCount;
+    private final AtomicLong flushedUsers;
+    private final AtomicLong totalFlushNanos;
+
+    private volatile long lastFlushNanos;
+    private volatile long maxFlushNanos;
+
+    public BalanceFlusher(@NotNull CoinsEnginePlugin plugin, @NotNull DataHandler dataHandler, int batchSize) {
+        this.plugin = plugin;
+        this.dataHandler = dataHandler;
+        this.pending = new ConcurrentHashMap<>();
+        this.batchSize = Math.max(1, batchSize);
+        this.flushLock = new Object();
+
+        this.flushCount = new AtomicLong();
+        this.flushedUsers = new AtomicLong();
+        this.totalFlushNanos = new AtomicLong();
+    }
+
+    public void enqueue(@NotNull CoinsUser user) {
+        // Nothing tracked means the user was changed bypassing the tracking, so save it entirely.
+        if (!user.isDirty()) user.markDirty();
+
+        this.pending.put(user.getId(), user);
+    }
+
+    public void flush() {
+        if (this.pending.isEmpty()) return;
+
+        synchronized (this.flushLock) {
+            List<CoinsUser> batch = new ArrayList<>();
+            Iterator<CoinsUser> iterator = this.pending.values().iterator();
+
+            while (iterator.hasNext()) {
+                CoinsUser user = iterator.next();
+                iterator.remove();
+
+                // Already written by someone else (quit save, shutdown save, etc.).
+                if (!user.isDirty()) continue;
+
+                batch.add(user);
+                if (batch.size() >= this.batchSize) {
+                    this.write(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                this.write(batch);
+            }
+        }
+    }
+
+    private void write(@NotNull List<CoinsUser> batch) {
+        long start = System.nanoTime();
+        boolean success = this.dataHandler.saveChanges(batch);
+        long took = System.nanoTime() - start;
+
+        if (!success) {
+            batch.forEach(user -> this.pending.putIfAbsent(user.getId(), user));
+        }
+
+        this.flushCount.incrementAndGet();
+        this.flushedUsers.addAndGet(batch.size());
+        this.totalFlushNanos.addAndGet(took);
+        this.lastFlushNanos = took;
+        if (took > this.maxFlushNanos) this.maxFlushNanos = took;
+
+        this.plugin.debug("Flushed " + batch.size() + " user(s) in " + TimeUnit.NANOSECONDS.toMillis(took) + " ms. Queue depth: " + this.getQueueDepth());
+    }
+
+    public int getQueueDepth() {
+        return this.pending.size();
+    }
+
+    public long getFlushCount() {
+        return this.flushCount.get();
+    }
+
+    public long getFlushedUsers() {
+        return this.flushedUsers.get();
+    }
+
+    public double getLastFlushMillis() {
+        return this.lastFlushNanos / 1_000_000D;
+    }
+
+    public double getMaxFlushMillis() {
+        return this.maxFlushNanos / 1_000_000D;
+    }
+
+    public double getAverageFlushMillis() {
+        long count = this.flushCount.get();
+        return count == 0L ? 0D : (this.totalFlushNanos.get() / (double) count) / 1_000_000D;
+    }
+}
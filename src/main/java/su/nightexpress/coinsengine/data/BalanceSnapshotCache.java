@@ -1,46 +1,157 @@
 package su.nightexpress.coinsengine.data;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import su.nightexpress.coinsengine.api.currency.Currency;
+import su.nightexpress.coinsengine.data.impl.CoinsUser;
+import su.nightexpress.nightcore.util.LowerCase;
 
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Lightweight, thread-safe snapshot cache of user balances per currency.
  * - Reads are lock-free and constant-time.
- * - Writers update after successful operations or external sync (Redis).
+ * - Writers update after successful operations, external sync (Redis), user unloads and background warm-ups.
+ * - Every snapshot keeps the time it was taken, so readers decide whether it is fresh enough.
  * - Intended to serve Vault/other API calls on the main thread without DB hits.
  */
 public class BalanceSnapshotCache {
 
-    // userId -> (currencyId -> balance)
-    private final Map<UUID, Map<String, Double>> balances = new ConcurrentHashMap<>();
+    public enum ReadOutcome {
+        /** Balance was read from a loaded user. */
+        LOADED,
+        /** Balance was read from a fresh snapshot. */
+        SNAPSHOT,
+        /** User was loaded from the database outside of the main thread. */
+        FETCHED,
+        /** Cache miss on the main thread, user was loaded from the database. */
+        MISS_BLOCKED,
+        /** Cache miss on the main thread, zero was returned. */
+        MISS_ZERO,
+        /** Cache miss on the main thread, an outdated snapshot was returned. */
+        MISS_LAST_KNOWN
+    }
+
+    public record Snapshot(double balance, long updated) {
+
+        public boolean isFresh(long lifetime) {
+            return System.currentTimeMillis() - this.updated < lifetime;
+        }
+    }
+
+    // userId -> (currencyId -> snapshot)
+    private final Map<UUID, Map<String, Snapshot>> balances = new ConcurrentHashMap<>();
+    private final Map<String, UUID>                idsByName = new ConcurrentHashMap<>();
+    private final Set<Object>                      warmingUp = ConcurrentHashMap.newKeySet();
+    private final Map<ReadOutcome, LongAdder>      outcomes  = new EnumMap<>(ReadOutcome.class); // Never changed after creation.
+    private final Map<ReadOutcome, Long>           reported  = new EnumMap<>(ReadOutcome.class); // Used by the report task only.
+
+    public BalanceSnapshotCache() {
+        for (ReadOutcome outcome : ReadOutcome.values()) {
+            this.outcomes.put(outcome, new LongAdder());
+        }
+    }
 
     public double getBalance(@NotNull UUID userId, @NotNull String currencyId) {
-        Map<String, Double> map = balances.get(userId);
-        if (map == null) return 0D;
-        return map.getOrDefault(currencyId, 0D);
+        Snapshot snapshot = this.getSnapshot(userId, currencyId);
+        return snapshot == null ? 0D : snapshot.balance();
+    }
+
+    @Nullable
+    public Snapshot getSnapshot(@NotNull UUID userId, @NotNull String currencyId) {
+        Map<String, Snapshot> map = this.balances.get(userId);
+        return map == null ? null : map.get(currencyId);
+    }
+
+    @Nullable
+    public UUID getId(@NotNull String name) {
+        return this.idsByName.get(LowerCase.INTERNAL.apply(name));
     }
 
     public void setBalance(@NotNull UUID userId, @NotNull String currencyId, double value) {
-        balances.computeIfAbsent(userId, id -> new ConcurrentHashMap<>()).put(currencyId, value);
+        this.balances.computeIfAbsent(userId, id -> new ConcurrentHashMap<>()).put(currencyId, new Snapshot(value, System.currentTimeMillis()));
+    }
+
+    /**
+     * Adds the delta to an existing snapshot. Snapshot keeps its time, as the base balance is not any fresher.
+     */
+    public void addDelta(@NotNull UUID userId, @NotNull String currencyId, double delta) {
+        Map<String, Snapshot> map = this.balances.get(userId);
+        if (map == null) return;
+
+        map.computeIfPresent(currencyId, (id, snapshot) -> new Snapshot(Math.max(0D, snapshot.balance() + delta), snapshot.updated()));
     }
 
     public void setBalances(@NotNull UUID userId, @NotNull Map<String, Double> newBalances) {
-        balances.compute(userId, (id, old) -> {
-            if (old == null) return new ConcurrentHashMap<>(newBalances);
-            old.clear();
-            old.putAll(newBalances);
-            return old;
-        });
+        long now = System.currentTimeMillis();
+        Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+        newBalances.forEach((currencyId, balance) -> snapshots.put(currencyId, new Snapshot(balance, now)));
+
+        this.balances.put(userId, snapshots);
     }
 
     public void updateFromUser(@NotNull UUID userId, @NotNull Iterable<Currency> currencies, java.util.function.Function<Currency, Double> balanceProvider) {
-        Map<String, Double> map = balances.computeIfAbsent(userId, id -> new ConcurrentHashMap<>());
+        long now = System.currentTimeMillis();
+        Map<String, Snapshot> map = this.balances.computeIfAbsent(userId, id -> new ConcurrentHashMap<>());
         for (Currency c : currencies) {
-            map.put(c.getId(), balanceProvider.apply(c));
+            map.put(c.getId(), new Snapshot(balanceProvider.apply(c), now));
+        }
+    }
+
+    public void updateFromUser(@NotNull CoinsUser user, @NotNull Iterable<Currency> currencies) {
+        this.idsByName.put(LowerCase.INTERNAL.apply(user.getName()), user.getId());
+        this.updateFromUser(user.getId(), currencies, user::getBalance);
+    }
+
+    /**
+     * Removes users whose snapshots all are older than the given age.
+     *
+     * @param maxAge Max. snapshot age in milliseconds.
+     */
+    public void purge(long maxAge) {
+        long minTime = System.currentTimeMillis() - maxAge;
+
+        this.balances.values().removeIf(map -> map.values().stream().allMatch(snapshot -> snapshot.updated() < minTime));
+        this.idsByName.values().removeIf(id -> !this.balances.containsKey(id));
+    }
+
+    /**
+     * Marks the key (player ID or name) as being warmed up.
+     *
+     * @return False if warm-up for this key is already running.
+     */
+    public boolean startWarmUp(@NotNull Object key) {
+        return this.warmingUp.add(key);
+    }
+
+    public void finishWarmUp(@NotNull Object key) {
+        this.warmingUp.remove(key);
+    }
+
+    public void count(@NotNull ReadOutcome outcome) {
+        this.outcomes.get(outcome).increment();
+    }
+
+    public long getCount(@NotNull ReadOutcome outcome) {
+        return this.outcomes.get(outcome).sum();
+    }
+
+    /**
+     * @return Amount of reads by outcome since the previous call. Should be called from one thread only.
+     */
+    @NotNull
+    public Map<ReadOutcome, Long> pollCounts() {
+        Map<ReadOutcome, Long> counts = new EnumMap<>(ReadOutcome.class);
+        for (ReadOutcome outcome : ReadOutcome.values()) {
+            long total = this.getCount(outcome);
+            counts.put(outcome, total - this.reported.getOrDefault(outcome, 0L));
+            this.reported.put(outcome, total);
         }
+        return counts;
     }
 }
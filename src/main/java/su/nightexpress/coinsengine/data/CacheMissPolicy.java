@@ -0,0 +1,16 @@
+package su.nightexpress.coinsengine.data;
+
+public enum CacheMissPolicy {
+    /**
+     * User data is loaded from the database right away, blocking the calling thread.
+     */
+    BLOCK,
+    /**
+     * Zero balance is returned, user data is loaded in background.
+     */
+    ZERO,
+    /**
+     * The last known balance (or zero if there is none) is returned, user data is loaded in background.
+     */
+    LAST_KNOWN
+}
@@ -3,25 +3,35 @@ package su.nightexpress.coinsengine.data;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import su.nightexpress.coinsengine.CoinsEnginePlugin;
 import su.nightexpress.coinsengine.api.currency.Currency;
+import su.nightexpress.coinsengine.config.Config;
+import su.nightexpress.coinsengine.data.impl.BalanceRow;
 import su.nightexpress.coinsengine.data.impl.CoinsUser;
 import su.nightexpress.coinsengine.data.impl.CurrencySettings;
 import su.nightexpress.coinsengine.data.serialize.CurrencySettingsSerializer;
+import su.nightexpress.coinsengine.migration.MigrationRecord;
+import su.nightexpress.coinsengine.tops.TopEntry;
 import su.nightexpress.nightcore.db.AbstractUserDataManager;
 import su.nightexpress.nightcore.db.sql.column.Column;
 import su.nightexpress.nightcore.db.sql.column.ColumnType;
 import su.nightexpress.nightcore.db.sql.query.impl.SelectQuery;
-import su.nightexpress.nightcore.db.sql.query.impl.UpdateQuery;
 import su.nightexpress.nightcore.db.sql.query.type.ValuedQuery;
+import su.nightexpress.nightcore.db.sql.util.SQLUtils;
 import su.nightexpress.nightcore.util.Lists;
 
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 public class DataHandler extends AbstractUserDataManager<CoinsEnginePlugin, CoinsUser> {
 
@@ -29,15 +39,24 @@ public class DataHandler extends AbstractUserDataManager<CoinsEnginePlugin, Coin
         .registerTypeAdapter(CurrencySettings.class, new CurrencySettingsSerializer())
         .create();
 
+    static final Column COLUMN_ID             = Column.of("id", ColumnType.INTEGER); // Auto increment primary key.
     static final Column COLUMN_SETTINGS       = Column.of("settings", ColumnType.STRING);
     static final Column COLUMN_HIDE_FROM_TOPS = Column.of("hiddenFromTops", ColumnType.BOOLEAN);
+    static final Column COLUMN_UPDATED_AT     = Column.of("updatedAt", ColumnType.LONG);
+
+    private static final int ID_CHUNK_SIZE = 500; // Max. player IDs in a single IN (...) clause.
 
     static final Map<String, Column> CURRENCY_COLUMNS = new HashMap<>();
 
+    private final Map<String, String> partialUpdates; // Column set key -> Update statement SQL.
+
     private boolean synchronizationActive; // A little helper to pause synchronization during operations disable
+    private long    syncWatermark;         // Time of the previous synchronization.
 
     public DataHandler(@NotNull CoinsEnginePlugin plugin) {
         super(plugin);
+        this.partialUpdates = new ConcurrentHashMap<>();
+        this.syncWatermark = System.currentTimeMillis();
         this.setSynchronizationActive(true);
     }
 
@@ -54,6 +73,7 @@ public class DataHandler extends AbstractUserDataManager<CoinsEnginePlugin, Coin
     protected void onClose() {
         super.onClose();
         CURRENCY_COLUMNS.clear();
+        this.partialUpdates.clear();
     }
 
     @Override
@@ -75,6 +95,8 @@ public class DataHandler extends AbstractUserDataManager<CoinsEnginePlugin, Coin
         this.dropColumn(this.tableUsers, "balances", "currencyData");
         this.addColumn(this.tableUsers, COLUMN_SETTINGS, "{}");
         this.addColumn(this.tableUsers, COLUMN_HIDE_FROM_TOPS, String.valueOf(0));
+        this.addColumn(this.tableUsers, COLUMN_UPDATED_AT, String.valueOf(0));
+        this.addIndex(this.tableUsers + "_updated", COLUMN_UPDATED_AT);
     }
 
     @NotNull
@@ -97,18 +119,109 @@ public class DataHandler extends AbstractUserDataManager<CoinsEnginePlugin, Coin
 
     public void onCurrencyUnload(@NotNull Currency currency) {
         CURRENCY_COLUMNS.remove(currency.getId());
+        this.partialUpdates.clear();
     }
 
     public void addCurrencyColumn(@NotNull Currency currency) {
         Column column = Column.of(currency.getColumnName(), ColumnType.DOUBLE);
         this.addColumn(this.tableUsers, column, String.valueOf(currency.getStartValue()));
         CURRENCY_COLUMNS.put(currency.getId(), column);
+
+        // Index matching the top entries query, so databases can read top rows without sorting the whole table.
+        if (Config.isDatabaseTops()) {
+            this.addIndex(this.tableUsers + "_top_" + column.getName(), COLUMN_HIDE_FROM_TOPS, column);
+        }
+    }
+
+    private void addIndex(@NotNull String indexName, @NotNull Column... columns) {
+        try (Connection connection = this.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet resultSet = metaData.getIndexInfo(null, null, this.tableUsers, false, false)) {
+                while (resultSet.next()) {
+                    if (indexName.equalsIgnoreCase(resultSet.getString("INDEX_NAME"))) return;
+                }
+            }
+
+            String values = Arrays.stream(columns).map(Column::getNameEscaped).collect(Collectors.joining(", "));
+            String sql = "CREATE INDEX " + SQLUtils.escape(indexName) + " ON " + SQLUtils.escape(this.tableUsers) + " (" + values + ")";
+
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.executeUpdate();
+            }
+        }
+        catch (SQLException exception) {
+            this.plugin.error("Could not create '" + indexName + "' index: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Selects top balances of the given currency, excluding users hidden from tops.
+     *
+     * @param currency Currency to select balances of.
+     * @param limit Max. amount of entries.
+     * @return Top entries sorted by balance.
+     */
+    @NotNull
+    public List<TopEntry> selectTopEntries(@NotNull Currency currency, int limit) {
+        List<TopEntry> entries = new ArrayList<>();
+        Column column = getCurrencyColumn(currency);
+        if (column == null) return entries;
+
+        String sql = "SELECT " + COLUMN_USER_ID.getNameEscaped() + ", " + COLUMN_USER_NAME.getNameEscaped() + ", " + column.getNameEscaped() +
+            " FROM " + SQLUtils.escape(this.tableUsers) +
+            " WHERE " + COLUMN_HIDE_FROM_TOPS.getNameEscaped() + " = 0" +
+            " ORDER BY " + column.getNameEscaped() + " DESC LIMIT ?";
+
+        try (Connection connection = this.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setInt(1, limit);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    UUID playerId = UUID.fromString(resultSet.getString(COLUMN_USER_ID.getName()));
+                    String name = resultSet.getString(COLUMN_USER_NAME.getName());
+                    double balance = resultSet.getDouble(column.getName());
+
+                    entries.add(new TopEntry(entries.size() + 1, name, playerId, balance));
+                }
+            }
+        }
+        catch (SQLException exception) {
+            this.plugin.error("Could not select top entries for '" + currency.getId() + "' currency: " + exception.getMessage());
+        }
+
+        return entries;
+    }
+
+    /**
+     * @param currency Currency to sum balances of.
+     * @return Sum of balances of all users not hidden from tops.
+     */
+    public double selectTotalBalance(@NotNull Currency currency) {
+        Column column = getCurrencyColumn(currency);
+        if (column == null) return 0D;
+
+        String sql = "SELECT SUM(" + column.getNameEscaped() + ") FROM " + SQLUtils.escape(this.tableUsers) +
+            " WHERE " + COLUMN_HIDE_FROM_TOPS.getNameEscaped() + " = 0";
+
+        try (Connection connection = this.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet resultSet = statement.executeQuery()) {
+
+            return resultSet.next() ? resultSet.getDouble(1) : 0D;
+        }
+        catch (SQLException exception) {
+            this.plugin.error("Could not select total balance for '" + currency.getId() + "' currency: " + exception.getMessage());
+            return 0D;
+        }
     }
 
     @Override
     protected void addUpsertQueryData(@NotNull ValuedQuery<?, CoinsUser> query) {
         query.setValue(COLUMN_SETTINGS, user -> GSON.toJson(user.getSettingsMap()));
         query.setValue(COLUMN_HIDE_FROM_TOPS, user -> String.valueOf(user.isHiddenFromTops() ? 1 : 0));
+        query.setValue(COLUMN_UPDATED_AT, user -> String.valueOf(System.currentTimeMillis()));
 
         CURRENCY_COLUMNS.forEach((id, column) -> {
             query.setValue(column, user -> String.valueOf(user.getBalance().get(id)));
@@ -126,6 +239,266 @@ public class DataHandler extends AbstractUserDataManager<CoinsEnginePlugin, Coin
     protected void addTableColumns(@NotNull List<Column> columns) {
         columns.add(COLUMN_SETTINGS);
         columns.add(COLUMN_HIDE_FROM_TOPS);
+        columns.add(COLUMN_UPDATED_AT);
+    }
+
+    @Override
+    public void saveUser(@NotNull CoinsUser user) {
+        user.clearDirty();
+        super.saveUser(user);
+    }
+
+    @Override
+    public void saveUsers(@NotNull Collection<CoinsUser> users) {
+        // Clear marks before the write, so changes made while it's running are picked by the next flush.
+        users.forEach(CoinsUser::clearDirty);
+        super.saveUsers(users);
+    }
+
+    /**
+     * Writes only changed columns of the given users. Users are grouped by their set of changed columns, and each group
+     * is written as a single batch of the same prepared statement. Users marked as changed entirely are saved as usual.
+     *
+     * @param users Users to save.
+     * @return Whether all changes were written successfully. On failure users are marked to be saved entirely.
+     */
+    public boolean saveChanges(@NotNull Collection<CoinsUser> users) {
+        List<CoinsUser> fullRows = new ArrayList<>();
+        Map<ChangeSet, List<CoinsUser>> groups = new HashMap<>();
+
+        for (CoinsUser user : users) {
+            if (user.pollDirty()) {
+                user.clearDirty();
+                fullRows.add(user);
+                continue;
+            }
+
+            boolean settings = user.pollSettingsDirty();
+            List<String> currencyIds = user.pollDirtyCurrencies().stream().filter(CURRENCY_COLUMNS::containsKey).sorted().toList();
+            if (!settings && currencyIds.isEmpty()) continue;
+
+            groups.computeIfAbsent(new ChangeSet(settings, currencyIds), k -> new ArrayList<>()).add(user);
+        }
+
+        if (!fullRows.isEmpty()) {
+            super.saveUsers(fullRows);
+        }
+        if (groups.isEmpty()) return true;
+
+        try (Connection connection = this.getConnection()) {
+            for (var entry : groups.entrySet()) {
+                ChangeSet changeSet = entry.getKey();
+                String sql = this.partialUpdates.computeIfAbsent(changeSet.key(), k -> this.createPartialUpdate(changeSet));
+
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    long updatedAt = System.currentTimeMillis();
+
+                    for (CoinsUser user : entry.getValue()) {
+                        int index = 1;
+                        if (changeSet.settings()) {
+                            statement.setString(index++, GSON.toJson(user.getSettingsMap()));
+                            statement.setString(index++, String.valueOf(user.isHiddenFromTops() ? 1 : 0));
+                        }
+                        for (String currencyId : changeSet.currencyIds()) {
+                            statement.setString(index++, String.valueOf(user.getBalance().get(currencyId)));
+                        }
+                        statement.setLong(index++, updatedAt);
+                        statement.setString(index, user.getId().toString());
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+            }
+            return true;
+        }
+        catch (SQLException exception) {
+            this.plugin.error("Could not save user changes: " + exception.getMessage());
+            groups.values().forEach(list -> list.forEach(CoinsUser::markDirty));
+            return false;
+        }
+    }
+
+    /**
+     * Writes balances of the given currencies for all given users in a single transaction, so either all rows are
+     * updated or none of them. Used for operations that change several users at once, like payments.
+     *
+     * @param changes Changed currencies by user.
+     * @return Whether the transaction was committed. On failure change marks are restored for regular saving.
+     */
+    public boolean saveBalances(@NotNull Map<CoinsUser, ? extends Collection<Currency>> changes) {
+        // Clear marks before the write, so changes made while it's running are picked by the next flush.
+        changes.forEach((user, currencies) -> currencies.forEach(user::pollDirty));
+
+        try (Connection connection = this.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                long updatedAt = System.currentTimeMillis();
+
+                for (var entry : changes.entrySet()) {
+                    CoinsUser user = entry.getKey();
+                    List<String> currencyIds = entry.getValue().stream().map(Currency::getId).filter(CURRENCY_COLUMNS::containsKey).sorted().toList();
+                    if (currencyIds.isEmpty()) continue;
+
+                    ChangeSet changeSet = new ChangeSet(false, currencyIds);
+                    String sql = this.partialUpdates.computeIfAbsent(changeSet.key(), k -> this.createPartialUpdate(changeSet));
+
+                    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                        int index = 1;
+                        for (String currencyId : currencyIds) {
+                            statement.setString(index++, String.valueOf(user.getBalance().get(currencyId)));
+                        }
+                        statement.setLong(index++, updatedAt);
+                        statement.setString(index, user.getId().toString());
+                        statement.executeUpdate();
+                    }
+                }
+
+                connection.commit();
+                return true;
+            }
+            catch (SQLException exception) {
+                connection.rollback();
+                throw exception;
+            }
+            finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        catch (SQLException exception) {
+            this.plugin.error("Could not save balances in transaction: " + exception.getMessage());
+            changes.forEach((user, currencies) -> currencies.forEach(user::markDirty));
+            return false;
+        }
+    }
+
+    /**
+     * Loads users with the given IDs using one select per chunk of IDs instead of one per user.
+     *
+     * @param playerIds Player IDs.
+     * @return Users found in the database. Unknown IDs are skipped.
+     */
+    @NotNull
+    public List<CoinsUser> getUsers(@NotNull Collection<UUID> playerIds) {
+        List<CoinsUser> users = new ArrayList<>();
+        if (playerIds.isEmpty()) return users;
+
+        List<String> ids = playerIds.stream().map(UUID::toString).toList();
+
+        try (Connection connection = this.getConnection()) {
+            for (List<String> chunk : Lists.split(ids, ID_CHUNK_SIZE)) {
+                String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                String sql = "SELECT * FROM " + SQLUtils.escape(this.tableUsers) + " WHERE " + COLUMN_USER_ID.getNameEscaped() + " IN (" + placeholders + ")";
+
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    for (int index = 0; index < chunk.size(); index++) {
+                        statement.setString(index + 1, chunk.get(index));
+                    }
+
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            CoinsUser user = this.userFunction.apply(resultSet);
+                            if (user != null) users.add(user);
+                        }
+                    }
+                }
+            }
+        }
+        catch (SQLException exception) {
+            this.plugin.error("Could not load users: " + exception.getMessage());
+        }
+
+        return users;
+    }
+
+    /**
+     * Writes balance of a single currency for all given users as one batch of the same prepared statement.
+     *
+     * @param currency Currency to write.
+     * @param users Users to save.
+     * @return Whether the batch was written. On failure change marks are restored for regular saving.
+     */
+    public boolean saveBalances(@NotNull Currency currency, @NotNull Collection<CoinsUser> users) {
+        if (users.isEmpty() || !CURRENCY_COLUMNS.containsKey(currency.getId())) return true;
+
+        // Clear marks before the write, so changes made while it's running are picked by the next flush.
+        users.forEach(user -> user.pollDirty(currency));
+
+        ChangeSet changeSet = new ChangeSet(false, List.of(currency.getId()));
+        String sql = this.partialUpdates.computeIfAbsent(changeSet.key(), k -> this.createPartialUpdate(changeSet));
+
+        try (Connection connection = this.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            long updatedAt = System.currentTimeMillis();
+            for (CoinsUser user : users) {
+                statement.setString(1, String.valueOf(user.getBalance(currency)));
+                statement.setLong(2, updatedAt);
+                statement.setString(3, user.getId().toString());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            return true;
+        }
+        catch (SQLException exception) {
+            this.plugin.error("Could not save balances of " + users.size() + " users: " + exception.getMessage());
+            users.forEach(user -> user.markDirty(currency));
+            return false;
+        }
+    }
+
+    @NotNull
+    private String createPartialUpdate(@NotNull ChangeSet changeSet) {
+        List<Column> columns = new ArrayList<>();
+        if (changeSet.settings()) {
+            columns.add(COLUMN_SETTINGS);
+            columns.add(COLUMN_HIDE_FROM_TOPS);
+        }
+        changeSet.currencyIds().forEach(id -> columns.add(getCurrencyColumn(id)));
+        columns.add(COLUMN_UPDATED_AT);
+
+        String values = columns.stream().map(column -> column.getNameEscaped() + " = ?").collect(Collectors.joining(", "));
+
+        return "UPDATE " + SQLUtils.escape(this.tableUsers) + " SET " + values + " WHERE " + COLUMN_USER_ID.getNameEscaped() + " = ?";
+    }
+
+    private record ChangeSet(boolean settings, @NotNull List<String> currencyIds) {
+
+        @NotNull
+        public String key() {
+            return (this.settings ? "settings;" : "") + String.join(",", this.currencyIds);
+        }
+    }
+
+    /**
+     * Reads ID, name, tops visibility and balances of all users one by one, without keeping them all in memory.
+     *
+     * @param consumer Row handler.
+     */
+    public void readBalanceRows(@NotNull Consumer<BalanceRow> consumer) {
+        List<Column> columns = new ArrayList<>();
+        columns.add(COLUMN_USER_ID);
+        columns.add(COLUMN_USER_NAME);
+        columns.add(COLUMN_HIDE_FROM_TOPS);
+        columns.addAll(CURRENCY_COLUMNS.values());
+
+        String values = columns.stream().map(Column::getNameEscaped).collect(Collectors.joining(", "));
+        String sql = "SELECT " + values + " FROM " + SQLUtils.escape(this.tableUsers);
+
+        try (Connection connection = this.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setFetchSize(1000);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    BalanceRow row = DataQueries.BALANCE_ROW_LOADER.apply(resultSet);
+                    if (row != null) consumer.accept(row);
+                }
+            }
+        }
+        catch (SQLException exception) {
+            this.plugin.error("Could not read user balances: " + exception.getMessage());
+        }
     }
 
     @Override
@@ -133,20 +506,249 @@ public class DataHandler extends AbstractUserDataManager<CoinsEnginePlugin, Coin
         // Do not synchronize data if operations are disabled to prevent data loss/clash.
         if (!this.synchronizationActive) return;
 
-        this.synchronizer.syncAll();
+        this.synchronizeChanges();
+    }
+
+    /**
+     * Reads rows changed since the previous synchronization, only for users loaded on this server, and passes them to
+     * the user manager. Rows are selected by the indexed updatedAt column in chunks of player IDs.
+     */
+    public void synchronizeChanges() {
+        long started = System.currentTimeMillis();
+        // Read a bit before the previous sync to catch rows written by servers with a slightly different clock
+        // or committed after the previous sync had started.
+        long since = this.syncWatermark - Config.DATA_SYNC_LOOKBACK.get() * 1000L;
+
+        List<String> playerIds = this.plugin.getUserManager().getLoadedByIdMap().keySet().stream().map(UUID::toString).toList();
+        if (playerIds.isEmpty()) {
+            this.syncWatermark = started;
+            return;
+        }
+
+        List<Column> columns = new ArrayList<>();
+        columns.add(COLUMN_USER_ID);
+        columns.add(COLUMN_USER_NAME);
+        columns.add(COLUMN_HIDE_FROM_TOPS);
+        columns.addAll(CURRENCY_COLUMNS.values());
+
+        String values = columns.stream().map(Column::getNameEscaped).collect(Collectors.joining(", "));
+
+        try (Connection connection = this.getConnection()) {
+            for (List<String> chunk : Lists.split(playerIds, ID_CHUNK_SIZE)) {
+                String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                String sql = "SELECT " + values + " FROM " + SQLUtils.escape(this.tableUsers) +
+                    " WHERE " + COLUMN_UPDATED_AT.getNameEscaped() + " > ?" +
+                    " AND " + COLUMN_USER_ID.getNameEscaped() + " IN (" + placeholders + ")";
+
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    statement.setLong(1, since);
+                    for (int index = 0; index < chunk.size(); index++) {
+                        statement.setString(index + 2, chunk.get(index));
+                    }
+
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            BalanceRow row = DataQueries.BALANCE_ROW_LOADER.apply(resultSet);
+                            if (row != null) this.plugin.getUserManager().handleSynchronization(row);
+                        }
+                    }
+                }
+            }
+            this.syncWatermark = started;
+        }
+        catch (SQLException exception) {
+            this.plugin.error("Could not synchronize user data: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * @return Min. and max. row ID of the users table, or null if the table is empty.
+     */
+    @Nullable
+    public long[] getUserIdRange() {
+        String sql = "SELECT MIN(" + COLUMN_ID.getNameEscaped() + "), MAX(" + COLUMN_ID.getNameEscaped() + ") FROM " + SQLUtils.escape(this.tableUsers);
+
+        try (Connection connection = this.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+
+            if (!resultSet.next()) return null;
+
+            long min = resultSet.getLong(1);
+            if (resultSet.wasNull()) return null;
+
+            return new long[]{min, resultSet.getLong(2)};
+        }
+        catch (SQLException exception) {
+            this.plugin.error("Could not read user ID range: " + exception.getMessage());
+            return null;
+        }
     }
 
-    public void resetBalances(@NotNull Currency currency) {
-        this.resetBalances(Lists.newSet(currency));
+    /**
+     * @param fromId First row ID (inclusive).
+     * @param toId Last row ID (exclusive).
+     * @return IDs of players stored in the rows of the given range.
+     */
+    @NotNull
+    public Set<UUID> getPlayerIds(long fromId, long toId) {
+        Set<UUID> playerIds = new HashSet<>();
+        String sql = "SELECT " + COLUMN_USER_ID.getNameEscaped() + " FROM " + SQLUtils.escape(this.tableUsers) +
+            " WHERE " + COLUMN_ID.getNameEscaped() + " >= ? AND " + COLUMN_ID.getNameEscaped() + " < ?";
+
+        try (Connection connection = this.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setLong(1, fromId);
+            statement.setLong(2, toId);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    playerIds.add(UUID.fromString(resultSet.getString(1)));
+                }
+            }
+        }
+        catch (SQLException | IllegalArgumentException exception) {
+            this.plugin.error("Could not read player IDs of rows " + fromId + "-" + toId + ": " + exception.getMessage());
+        }
+
+        return playerIds;
     }
 
-    public void resetBalances(@NotNull Collection<Currency> currencies) {
-        UpdateQuery<Object> query = new UpdateQuery<>();
+    /**
+     * Resets balances of the given currencies in rows of the given ID range with a single update, so only these
+     * rows are locked by the database.
+     *
+     * @param fromId First row ID (inclusive).
+     * @param toId Last row ID (exclusive).
+     * @return Amount of updated rows, or -1 if update failed.
+     */
+    public int resetBalances(@NotNull Collection<Currency> currencies, long fromId, long toId) {
+        List<Currency> list = new ArrayList<>(currencies);
+        String values = list.stream().map(currency -> getCurrencyColumn(currency).getNameEscaped() + " = ?").collect(Collectors.joining(", "));
+        String sql = "UPDATE " + SQLUtils.escape(this.tableUsers) + " SET " + values + ", " + COLUMN_UPDATED_AT.getNameEscaped() + " = ?" +
+            " WHERE " + COLUMN_ID.getNameEscaped() + " >= ? AND " + COLUMN_ID.getNameEscaped() + " < ?";
+
+        try (Connection connection = this.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
 
-        for (Currency currency : currencies) {
-            query.setValue(getCurrencyColumn(currency), o -> String.valueOf(currency.getStartValue()));
+            int index = 1;
+            for (Currency currency : list) {
+                statement.setString(index++, String.valueOf(currency.getStartValue()));
+            }
+            statement.setLong(index++, System.currentTimeMillis());
+            statement.setLong(index++, fromId);
+            statement.setLong(index, toId);
+
+            return statement.executeUpdate();
+        }
+        catch (SQLException exception) {
+            this.plugin.error("Could not reset balances of rows " + fromId + "-" + toId + ": " + exception.getMessage());
+            return -1;
         }
+    }
+
+    /**
+     * Writes migrated balances of a single currency in one transaction, bypassing the user cache:
+     * one select to find existing users, one batched update for them and one batched insert for new ones.
+     * Records without player name are not inserted.
+     *
+     * @return Amount of written records.
+     * @throws SQLException If the transaction failed. Nothing is written in this case.
+     */
+    public int importBalances(@NotNull Currency currency, @NotNull List<MigrationRecord> records) throws SQLException {
+        if (records.isEmpty()) return 0;
+
+        Column balanceColumn = getCurrencyColumn(currency);
+        String table = SQLUtils.escape(this.tableUsers);
+        long now = System.currentTimeMillis();
+
+        try (Connection connection = this.getConnection()) {
+            connection.setAutoCommit(false);
+
+            try {
+                Set<UUID> existing = new HashSet<>();
+                String placeholders = String.join(", ", Collections.nCopies(records.size(), "?"));
+                String selectSql = "SELECT " + COLUMN_USER_ID.getNameEscaped() + " FROM " + table +
+                    " WHERE " + COLUMN_USER_ID.getNameEscaped() + " IN (" + placeholders + ")";
+
+                try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+                    for (int index = 0; index < records.size(); index++) {
+                        statement.setString(index + 1, records.get(index).playerId().toString());
+                    }
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            existing.add(UUID.fromString(resultSet.getString(1)));
+                        }
+                    }
+                }
+
+                String updateSql = "UPDATE " + table + " SET " + balanceColumn.getNameEscaped() + " = ?, " + COLUMN_UPDATED_AT.getNameEscaped() + " = ?" +
+                    " WHERE " + COLUMN_USER_ID.getNameEscaped() + " = ?";
+
+                List<Column> insertColumns = new ArrayList<>(List.of(COLUMN_USER_ID, COLUMN_USER_NAME, COLUMN_USER_DATE_CREATED,
+                    COLUMN_USER_LAST_ONLINE, COLUMN_SETTINGS, COLUMN_HIDE_FROM_TOPS, COLUMN_UPDATED_AT));
+                List<String> currencyIds = new ArrayList<>(CURRENCY_COLUMNS.keySet());
+                currencyIds.forEach(currencyId -> insertColumns.add(CURRENCY_COLUMNS.get(currencyId)));
+
+                String insertSql = "INSERT INTO " + table + " (" + insertColumns.stream().map(Column::getNameEscaped).collect(Collectors.joining(", ")) + ")" +
+                    " VALUES (" + String.join(", ", Collections.nCopies(insertColumns.size(), "?")) + ")";
 
-        this.update(this.tableUsers, query, new Object()); // Little hack to bypass query params.
+                int written = 0;
+                try (PreparedStatement update = connection.prepareStatement(updateSql);
+                     PreparedStatement insert = connection.prepareStatement(insertSql)) {
+
+                    int updates = 0;
+                    int inserts = 0;
+
+                    for (MigrationRecord record : records) {
+                        String balance = String.valueOf(record.balance());
+
+                        if (existing.contains(record.playerId())) {
+                            update.setString(1, balance);
+                            update.setLong(2, now);
+                            update.setString(3, record.playerId().toString());
+                            update.addBatch();
+                            updates++;
+                            continue;
+                        }
+                        if (!existing.add(record.playerId())) continue;
+
+                        // Unknown names are replaced with the ID, the real name is set when the player joins.
+                        String name = record.name() == null ? record.playerId().toString() : record.name();
+
+                        int index = 1;
+                        insert.setString(index++, record.playerId().toString());
+                        insert.setString(index++, name);
+                        insert.setLong(index++, now);
+                        insert.setLong(index++, now);
+                        insert.setString(index++, "{}");
+                        insert.setString(index++, "0");
+                        insert.setLong(index++, now);
+                        for (String currencyId : currencyIds) {
+                            Currency other = this.plugin.getCurrencyRegistry().getById(currencyId);
+                            double value = currencyId.equals(currency.getId()) ? record.balance() : (other == null ? 0D : other.getStartValue());
+                            insert.setString(index++, String.valueOf(value));
+                        }
+                        insert.addBatch();
+                        inserts++;
+                    }
+
+                    if (updates > 0) update.executeBatch();
+                    if (inserts > 0) insert.executeBatch();
+                    written = updates + inserts;
+                }
+
+                connection.commit();
+                return written;
+            }
+            catch (SQLException | RuntimeException exception) {
+                connection.rollback();
+                throw exception;
+            }
+            finally {
+                connection.setAutoCommit(true);
+            }
+        }
     }
 }
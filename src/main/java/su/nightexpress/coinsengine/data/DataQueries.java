@@ -2,6 +2,7 @@ package su.nightexpress.coinsengine.data;
 
 import com.google.gson.reflect.TypeToken;
 import org.jetbrains.annotations.NotNull;
+import su.nightexpress.coinsengine.data.impl.BalanceRow;
 import su.nightexpress.coinsengine.data.impl.CoinsUser;
 import su.nightexpress.coinsengine.data.impl.CurrencySettings;
 import su.nightexpress.coinsengine.user.UserBalance;
@@ -32,6 +33,21 @@ public class DataQueries {
         return balance;
     }
 
+    public static final Function<ResultSet, BalanceRow> BALANCE_ROW_LOADER = resultSet -> {
+        try {
+            UUID uuid = UUID.fromString(resultSet.getString(DataHandler.COLUMN_USER_ID.getName()));
+            String name = resultSet.getString(DataHandler.COLUMN_USER_NAME.getName());
+            boolean hiddenFromTops = resultSet.getBoolean(DataHandler.COLUMN_HIDE_FROM_TOPS.getName());
+            UserBalance balance = readBalance(resultSet);
+
+            return new BalanceRow(uuid, name, hiddenFromTops, balance);
+        }
+        catch (SQLException exception) {
+            exception.printStackTrace();
+            return null;
+        }
+    };
+
     public static final Function<ResultSet, CoinsUser> USER_LOADER = resultSet -> {
         try {
             UUID uuid = UUID.fromString(resultSet.getString(DataHandler.COLUMN_USER_ID.getName()));
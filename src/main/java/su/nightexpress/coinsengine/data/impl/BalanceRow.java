@@ -0,0 +1,13 @@
+package su.nightexpress.coinsengine.data.impl;
+
+import org.jetbrains.annotations.NotNull;
+import su.nightexpress.coinsengine.user.UserBalance;
+
+import java.util.UUID;
+
+/**
+ * Lightweight user data for leaderboards: no settings parsing and no CoinsUser instance.
+ */
+public record BalanceRow(@NotNull UUID playerId, @NotNull String name, boolean hiddenFromTops, @NotNull UserBalance balance) {
+
+}
@@ -4,19 +4,28 @@ import org.bukkit.Bukkit;
 import org.jetbrains.annotations.NotNull;
 import su.nightexpress.coinsengine.api.currency.Currency;
 import su.nightexpress.coinsengine.api.event.ChangeBalanceEvent;
+import su.nightexpress.coinsengine.user.BalanceLocks;
 import su.nightexpress.coinsengine.user.UserBalance;
 import su.nightexpress.nightcore.db.AbstractUser;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 public class CoinsUser extends AbstractUser {
 
     private final UserBalance                   balance;
     private final Map<String, CurrencySettings> settingsMap;
+    private final Set<String>                   dirtyCurrencies;
+    private final AtomicBoolean                 dirty;
+    private final AtomicBoolean                 settingsDirty;
 
     private boolean hiddenFromTops;
 
@@ -30,7 +39,10 @@ public class CoinsUser extends AbstractUser {
         super(uuid, name, dateCreated, lastLogin);
         this.balance = balance;
         this.settingsMap = new HashMap<>(settingsMap);
-        this.setHiddenFromTops(hiddenFromTops);
+        this.dirtyCurrencies = ConcurrentHashMap.newKeySet();
+        this.dirty = new AtomicBoolean(false);
+        this.settingsDirty = new AtomicBoolean(false);
+        this.hiddenFromTops = hiddenFromTops;
     }
 
     @NotNull
@@ -44,6 +56,23 @@ public class CoinsUser extends AbstractUser {
         return this.balance;
     }
 
+    /**
+     * Result of a single balance edit.
+     *
+     * @param oldBalance Balance right before the edit, read under the balance lock.
+     * @param newBalance Balance right after the edit, read under the balance lock.
+     * @param cancelled Whether the ChangeBalanceEvent was cancelled and the edit was reverted.
+     */
+    public record BalanceEdit(double oldBalance, double newBalance, boolean cancelled) {
+
+        /**
+         * @return Balance difference made by this edit, zero if it was cancelled.
+         */
+        public double delta() {
+            return this.cancelled ? 0D : this.newBalance - this.oldBalance;
+        }
+    }
+
     /**
      * Edits user's balance of specific currency and fires the ChangeBalanceEvent event. If event was cancelled, the balance is set back to previous (old) value.
      *
@@ -51,16 +80,123 @@ public class CoinsUser extends AbstractUser {
      * @param consumer balance function.
      */
     public void editBalance(@NotNull Currency currency, @NotNull Consumer<UserBalance> consumer) {
-        double oldBalance = this.getBalance(currency);
+        this.edit(currency, consumer);
+    }
 
-        consumer.accept(this.balance);
+    /**
+     * Same as {@link #editBalance(Currency, Consumer)}, but returns the balances the edit was actually applied to.
+     * Those must be used to tell the change to others, as the balance may be changed again right after the edit.
+     *
+     * @param currency Currency to edit balance of.
+     * @param consumer balance function.
+     * @return Applied edit.
+     */
+    @NotNull
+    public BalanceEdit edit(@NotNull Currency currency, @NotNull Consumer<UserBalance> consumer) {
+        // Edits of the same user and currency are serialized, so old and new balances of each edit are consistent.
+        double oldBalance;
+        double newBalance;
+        synchronized (BalanceLocks.lockOf(this.getId(), currency)) {
+            oldBalance = this.getBalance(currency);
+            consumer.accept(this.balance);
+            newBalance = this.getBalance(currency);
+        }
 
-        ChangeBalanceEvent event = new ChangeBalanceEvent(this, currency, oldBalance, this.getBalance(currency));
+        // The event is called without the lock: listeners may edit other balances, and holding a shared stripe
+        // while they take another one could deadlock.
+        ChangeBalanceEvent event = new ChangeBalanceEvent(this, currency, oldBalance, newBalance);
         Bukkit.getPluginManager().callEvent(event);
 
         if (event.isCancelled()) {
-            this.balance.set(currency, oldBalance);
+            // Revert only own change, keep balance if it was changed by anything else meanwhile.
+            this.balance.compareAndSet(currency, newBalance, oldBalance);
+            return new BalanceEdit(oldBalance, newBalance, true);
         }
+
+        this.markDirty(currency);
+        return new BalanceEdit(oldBalance, newBalance, false);
+    }
+
+    /**
+     * Marks the whole user row as changed, so all columns will be written to the database on the next flush.
+     */
+    public void markDirty() {
+        this.dirty.set(true);
+    }
+
+    /**
+     * Marks user's balance of specific currency as changed and not yet written to the database.
+     *
+     * @param currency Currency which balance was changed.
+     */
+    public void markDirty(@NotNull Currency currency) {
+        this.dirtyCurrencies.add(currency.getId());
+    }
+
+    /**
+     * Marks user's currency settings and tops visibility as changed and not yet written to the database.
+     */
+    public void markSettingsDirty() {
+        this.settingsDirty.set(true);
+    }
+
+    public boolean isDirty() {
+        return this.dirty.get() || this.settingsDirty.get() || !this.dirtyCurrencies.isEmpty();
+    }
+
+    public boolean isDirty(@NotNull Currency currency) {
+        return this.dirtyCurrencies.contains(currency.getId());
+    }
+
+    public void clearDirty() {
+        this.dirty.set(false);
+        this.settingsDirty.set(false);
+        this.dirtyCurrencies.clear();
+    }
+
+    /**
+     * Resets and returns the whole row change mark.
+     *
+     * @return Whether the whole row was marked as changed.
+     */
+    public boolean pollDirty() {
+        return this.dirty.getAndSet(false);
+    }
+
+    /**
+     * Resets and returns the change mark of the currency balance.
+     *
+     * @return Whether balance was marked as changed.
+     */
+    public boolean pollDirty(@NotNull Currency currency) {
+        return this.dirtyCurrencies.remove(currency.getId());
+    }
+
+    /**
+     * Resets and returns the settings change mark.
+     *
+     * @return Whether settings were marked as changed.
+     */
+    public boolean pollSettingsDirty() {
+        return this.settingsDirty.getAndSet(false);
+    }
+
+    /**
+     * Removes and returns IDs of currencies marked as changed. Currencies marked during the call stay marked.
+     *
+     * @return Set of changed currency IDs.
+     */
+    @NotNull
+    public Set<String> pollDirtyCurrencies() {
+        Set<String> polled = new HashSet<>();
+
+        Iterator<String> iterator = this.dirtyCurrencies.iterator();
+        while (iterator.hasNext()) {
+            polled.add(iterator.next());
+            iterator.remove();
+        }
+
+        return polled;
     }
 
     public void resetBalance(@NotNull Collection<Currency> currencies) {
@@ -106,6 +242,9 @@ public class CoinsUser extends AbstractUser {
     }
 
     public void setHiddenFromTops(boolean hiddenFromTops) {
+        if (this.hiddenFromTops == hiddenFromTops) return;
+
         this.hiddenFromTops = hiddenFromTops;
+        this.markSettingsDirty();
     }
 }
@@ -17,7 +17,6 @@ import su.nightexpress.nightcore.util.text.night.NightMessage;
 
 import java.text.DecimalFormat;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 
 public class PlaceholderAPIHook {
@@ -106,7 +105,8 @@ public class PlaceholderAPIHook {
             this.topPlaceholders.put("player", (entry, currency, position) -> entry.getName());
 
             this.playerPlaceholders.put("leaderboard_position", (player, user, currency) -> {
-                return this.plugin.getTopManager().map(topManager -> topManager.getTopEntry(currency, player.getName())).map(TopEntry::getPosition).map(String::valueOf).orElse("?");
+                int rank = this.plugin.getTopManager().map(topManager -> topManager.getRank(currency, player.getUniqueId())).orElse(0);
+                return rank > 0 ? String.valueOf(rank) : "?";
             });
         }
 
@@ -175,10 +175,8 @@ public class PlaceholderAPIHook {
                     int position = NumberUtil.getIntegerAbs(posRaw);
                     if (position <= 0) return null;
 
-                    List<TopEntry> baltop = topManager.getTopEntries(currency);
-                    if (position > baltop.size()) return Lang.OTHER_NO_TOP_ENTRY.text();
-
-                    TopEntry topEntry = baltop.get(position - 1);
+                    TopEntry topEntry = topManager.getEntry(currency, position);
+                    if (topEntry == null) return Lang.OTHER_NO_TOP_ENTRY.text();
 
                     return entry.getValue().produce(topEntry, currency, position);
                 }
@@ -1,25 +1,28 @@
 package su.nightexpress.coinsengine.migration;
 
-import org.bukkit.OfflinePlayer;
 import org.bukkit.command.CommandSender;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import su.nightexpress.coinsengine.COEFiles;
 import su.nightexpress.coinsengine.CoinsEnginePlugin;
 import su.nightexpress.coinsengine.Placeholders;
 import su.nightexpress.coinsengine.api.currency.Currency;
+import su.nightexpress.coinsengine.config.Config;
 import su.nightexpress.coinsengine.config.Lang;
 import su.nightexpress.coinsengine.currency.CurrencyManager;
 import su.nightexpress.coinsengine.currency.CurrencyRegistry;
 import su.nightexpress.coinsengine.data.DataHandler;
-import su.nightexpress.coinsengine.data.impl.CoinsUser;
 import su.nightexpress.coinsengine.hook.HookPlugin;
 import su.nightexpress.coinsengine.migration.command.MigrationCommands;
 import su.nightexpress.coinsengine.migration.impl.PlayerPointsMigrator;
 import su.nightexpress.coinsengine.user.UserManager;
 import su.nightexpress.nightcore.manager.SimpleManager;
 import su.nightexpress.nightcore.util.LowerCase;
+import su.nightexpress.nightcore.util.NumberUtil;
 import su.nightexpress.nightcore.util.Plugins;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.function.Supplier;
 
@@ -77,7 +80,7 @@ public class MigrationManager extends SimpleManager<CoinsEnginePlugin> {
     }
 
     public boolean startMigration(@NotNull CommandSender sender, @NotNull String name, @NotNull Currency currency) {
-        if (!this.currencyManager.canPerformOperations()) {
+        if (!this.currencyManager.canPerformOperations() || this.currencyManager.isResetRunning()) {
             Lang.MIGRATION_START_BLOCKED.message().send(sender);
             return false;
         }
@@ -98,31 +101,63 @@ public class MigrationManager extends SimpleManager<CoinsEnginePlugin> {
 
         this.plugin.runTaskAsync(task -> {
             this.currencyManager.disableOperations();
-            Lang.MIGRATION_STARTED.message().send(sender, replacer -> replacer.replace(Placeholders.GENERIC_NAME, migrator.getName()));
-            this.migrate(migrator, currency);
-            Lang.MIGRATION_COMPLETED.message().send(sender, replacer -> replacer.replace(Placeholders.GENERIC_NAME, migrator.getName()));
-            this.currencyManager.allowOperations();
+            try {
+                Lang.MIGRATION_STARTED.message().send(sender, replacer -> replacer.replace(Placeholders.GENERIC_NAME, migrator.getName()));
+
+                long written = this.migrate(migrator, currency, sender);
+                if (written >= 0) {
+                    Lang.MIGRATION_COMPLETED.message().send(sender, replacer -> replacer
+                        .replace(Placeholders.GENERIC_NAME, migrator.getName())
+                        .replace(Placeholders.GENERIC_AMOUNT, NumberUtil.format(written))
+                    );
+                }
+            }
+            finally {
+                this.currencyManager.allowOperations();
+            }
         });
 
         return true;
     }
 
-    public void migrate(@NotNull Migrator migrator, @NotNull Currency currency) {
-        Map<OfflinePlayer, Double> balances = migrator.getBalances(currency);
-        balances.forEach((player, amount) -> {
-            String name = player.getName();
-            if (name == null) return;
-
-            UUID uuid = player.getUniqueId();
-            CoinsUser user = this.userManager.getOrFetch(uuid);
-            if (user == null) {
-                user = this.userManager.create(uuid, name);
-                this.dataHandler.insertUser(user);
-            }
+    public long migrate(@NotNull Migrator migrator, @NotNull Currency currency) {
+        return this.migrate(migrator, currency, null);
+    }
 
-            user.setBalance(currency, amount);
-            this.userManager.save(user);
-        });
+    /**
+     * Streams balances from the migrator to the database in batches, continuing from the checkpoint of a previous
+     * interrupted migration of the same plugin and currency, if there is one.
+     *
+     * @return Amount of written balances, or -1 if migration failed.
+     */
+    public long migrate(@NotNull Migrator migrator, @NotNull Currency currency, @Nullable CommandSender sender) {
+        String fileName = LowerCase.INTERNAL.apply(migrator.getName()) + "_" + currency.getId() + ".checkpoint";
+        Path checkpoint = Paths.get(this.plugin.getDataFolder().getAbsolutePath(), COEFiles.DIR_MIGRATION, fileName);
+
+        MigrationWriter writer = new MigrationWriter(this.plugin, this.dataHandler, this.userManager, currency, Config.MIGRATION_BATCH_SIZE.get(), checkpoint, sender);
+        UUID resumeAfter = writer.getResumeAfter();
+        if (resumeAfter != null && sender != null) {
+            Lang.MIGRATION_RESUMED.message().send(sender, replacer -> replacer
+                .replace(Placeholders.GENERIC_NAME, migrator.getName())
+                .replace(Placeholders.GENERIC_VALUE, resumeAfter.toString())
+            );
+        }
+
+        try {
+            migrator.readBalances(currency, resumeAfter, writer);
+            writer.complete();
+            return writer.getWritten();
+        }
+        catch (Exception exception) {
+            this.plugin.error("Migration from " + migrator.getName() + " failed after " + writer.getPosition() + " records: " + exception.getMessage());
+            if (sender != null) {
+                Lang.MIGRATION_FAILED.message().send(sender, replacer -> replacer
+                    .replace(Placeholders.GENERIC_NAME, migrator.getName())
+                    .replace(Placeholders.GENERIC_AMOUNT, NumberUtil.format(writer.getPosition()))
+                );
+            }
+            return -1L;
+        }
     }
 
     @NotNull
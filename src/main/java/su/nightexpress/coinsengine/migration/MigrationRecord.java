@@ -0,0 +1,15 @@
+package su.nightexpress.coinsengine.migration;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * Single balance read by a {@link Migrator}.
+ *
+ * @param name Player name, if known. New players without name are created with their ID as name.
+ */
+public record MigrationRecord(@NotNull UUID playerId, @Nullable String name, double balance) {
+
+}
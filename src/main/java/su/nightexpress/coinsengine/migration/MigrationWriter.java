@@ -0,0 +1,218 @@
+package su.nightexpress.coinsengine.migration;
+
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import su.nightexpress.coinsengine.CoinsEnginePlugin;
+import su.nightexpress.coinsengine.Placeholders;
+import su.nightexpress.coinsengine.api.currency.Currency;
+import su.nightexpress.coinsengine.config.Lang;
+import su.nightexpress.coinsengine.data.DataHandler;
+import su.nightexpress.coinsengine.data.impl.CoinsUser;
+import su.nightexpress.coinsengine.sync.RedisSyncManager;
+import su.nightexpress.coinsengine.user.UserManager;
+import su.nightexpress.nightcore.util.NumberUtil;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Collects migrated balances into batches and writes them with {@link DataHandler#importBalances(Currency, List)}.
+ * - Records are not loaded as users and no balance events are called.
+ * - After every written batch, ID of the last written player is saved to the checkpoint file. When a migration is
+ *   started again, records are read after that player (records come sorted by {@link Migrator#PLAYER_ORDER}).
+ *   The file is deleted once migration is completed.
+ * - Throughput is reported to the console and to the sender every few seconds.
+ */
+public class MigrationWriter implements Consumer<MigrationRecord> {
+
+    private static final long REPORT_INTERVAL = 5000L;
+
+    private final CoinsEnginePlugin plugin;
+    private final DataHandler       dataHandler;
+    private final UserManager       userManager;
+    private final Currency          currency;
+    private final int               batchSize;
+    private final Path              checkpoint;
+    private final CommandSender     sender;
+
+    private final List<MigrationRecord> buffer;
+    private final UUID                  resumeAfter;
+    private final long                  started;
+
+    private UUID lastWritten;
+    private long position;
+    private long unnamed;
+    private long written;
+    private long lastReport;
+
+    public MigrationWriter(@NotNull CoinsEnginePlugin plugin,
+                           @NotNull DataHandler dataHandler,
+                           @NotNull UserManager userManager,
+                           @NotNull Currency currency,
+                           int batchSize,
+                           @NotNull Path checkpoint,
+                           @Nullable CommandSender sender) {
+        this.plugin = plugin;
+        this.dataHandler = dataHandler;
+        this.userManager = userManager;
+        this.currency = currency;
+        this.batchSize = Math.max(1, batchSize);
+        this.checkpoint = checkpoint;
+        this.sender = sender;
+
+        this.buffer = new ArrayList<>(this.batchSize);
+        this.resumeAfter = this.readCheckpoint();
+        this.lastWritten = this.resumeAfter;
+        this.started = System.currentTimeMillis();
+        this.lastReport = this.started;
+    }
+
+    @Override
+    public void accept(@NotNull MigrationRecord record) {
+        // Migrators read after the checkpoint already, just make sure nothing is written twice.
+        if (this.lastWritten != null && Migrator.PLAYER_ORDER.compare(record.playerId(), this.lastWritten) <= 0) return;
+
+        if (record.name() == null) this.unnamed++;
+
+        this.buffer.add(record);
+        if (this.buffer.size() >= this.batchSize) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Writes the last batch and removes the checkpoint.
+     */
+    public void complete() {
+        this.flush();
+
+        try {
+            Files.deleteIfExists(this.checkpoint);
+        }
+        catch (IOException exception) {
+            this.plugin.warn("Could not delete migration checkpoint '" + this.checkpoint + "': " + exception.getMessage());
+        }
+
+        long seconds = Math.max(1L, (System.currentTimeMillis() - this.started) / 1000L);
+        this.plugin.info("Migration to '" + this.currency.getId() + "' completed: " + this.written + " balances written in " + seconds + "s.");
+        if (this.unnamed > 0) {
+            this.plugin.info(this.unnamed + " migrated player(s) had no known name. New ones were created with their UUID as name, it is updated when they join.");
+        }
+    }
+
+    private void flush() {
+        if (this.buffer.isEmpty()) return;
+
+        int count;
+        try {
+            count = this.dataHandler.importBalances(this.currency, this.buffer);
+        }
+        catch (SQLException exception) {
+            throw new IllegalStateException("Could not write migrated balances: " + exception.getMessage(), exception);
+        }
+
+        this.updateLoadedUsers();
+
+        this.position += this.buffer.size();
+        this.lastWritten = this.buffer.get(this.buffer.size() - 1).playerId();
+        this.written += count;
+        this.buffer.clear();
+        this.writeCheckpoint();
+        this.report();
+    }
+
+    /**
+     * Database rows were written directly, so users already in cache must get the same balances.
+     */
+    private void updateLoadedUsers() {
+        Set<UUID> playerIds = this.buffer.stream().map(MigrationRecord::playerId).collect(Collectors.toSet());
+
+        // Stored balances are dropped to be seeded again from the migrated database values.
+        this.plugin.getRedisSyncManager().flatMap(RedisSyncManager::getBalanceStore).ifPresent(store -> {
+            try {
+                store.clear(playerIds, Set.of(this.currency));
+            }
+            catch (Exception exception) {
+                this.plugin.error("Could not clear migrated balances in Redis store: " + exception.getMessage());
+            }
+        });
+
+        for (MigrationRecord record : this.buffer) {
+            CoinsUser user = this.userManager.getLoaded(record.playerId());
+            if (user == null) continue;
+
+            user.getBalance().set(this.currency, record.balance()); // Bypass balance event call.
+            this.plugin.getTopManager().ifPresent(topManager -> topManager.updateUser(user));
+        }
+    }
+
+    private void report() {
+        long now = System.currentTimeMillis();
+        if (now - this.lastReport < REPORT_INTERVAL) return;
+
+        this.lastReport = now;
+
+        double perSecond = this.written / Math.max(0.001D, (now - this.started) / 1000D);
+        this.plugin.info("Migration to '" + this.currency.getId() + "': " + this.written + " balances written (" + NumberUtil.format(perSecond) + "/s).");
+
+        if (this.sender != null) {
+            Lang.MIGRATION_PROGRESS.message().send(this.sender, replacer -> replacer
+                .replace(Placeholders.GENERIC_AMOUNT, NumberUtil.format(this.written))
+                .replace(Placeholders.GENERIC_VALUE, NumberUtil.format(perSecond))
+            );
+        }
+    }
+
+    @Nullable
+    private UUID readCheckpoint() {
+        if (!Files.exists(this.checkpoint)) return null;
+
+        try {
+            return UUID.fromString(Files.readString(this.checkpoint, StandardCharsets.UTF_8).trim());
+        }
+        catch (IOException | IllegalArgumentException exception) {
+            // Old checkpoints with record count are not reliable. Balances are overwritten, so starting again is safe.
+            this.plugin.warn("Could not read migration checkpoint '" + this.checkpoint + "', starting from the beginning: " + exception.getMessage());
+            return null;
+        }
+    }
+
+    private void writeCheckpoint() {
+        try {
+            Files.createDirectories(this.checkpoint.getParent());
+            Files.writeString(this.checkpoint, String.valueOf(this.lastWritten), StandardCharsets.UTF_8);
+        }
+        catch (IOException exception) {
+            this.plugin.warn("Could not save migration checkpoint '" + this.checkpoint + "': " + exception.getMessage());
+        }
+    }
+
+    /**
+     * @return ID of the last player written by a previous, interrupted migration, or null if there was none.
+     */
+    @Nullable
+    public UUID getResumeAfter() {
+        return this.resumeAfter;
+    }
+
+    /**
+     * @return Amount of records written or attempted in this run.
+     */
+    public long getPosition() {
+        return this.position;
+    }
+
+    public long getWritten() {
+        return this.written;
+    }
+}
@@ -7,7 +7,11 @@ import org.jetbrains.annotations.Nullable;
 import su.nightexpress.coinsengine.CoinsEnginePlugin;
 import su.nightexpress.coinsengine.api.currency.Currency;
 
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 public abstract class Migrator {
 
@@ -31,6 +35,42 @@ public abstract class Migrator {
 
     public abstract boolean canMigrate(@NotNull Currency currency);
 
+    /**
+     * Order of records read by migrators: by player ID in its string form, same as SQL sorts UUID text columns.
+     */
+    public static final Comparator<UUID> PLAYER_ORDER = Comparator.comparing(UUID::toString);
+
+    /**
+     * Reads balances one by one and passes them to the consumer, without collecting them in memory.
+     * Records must come sorted by {@link #PLAYER_ORDER}, so an interrupted migration can be resumed after the last
+     * written player, even if records were added or removed meanwhile.
+     *
+     * @param currency Target currency.
+     * @param after ID of the last already written player, or null to read all records.
+     * @param consumer Record consumer. May throw an exception to abort reading.
+     * @throws Exception If balances could not be read.
+     */
+    public abstract void readBalances(@NotNull Currency currency, @Nullable UUID after, @NotNull Consumer<MigrationRecord> consumer) throws Exception;
+
+    public void readBalances(@NotNull Currency currency, @NotNull Consumer<MigrationRecord> consumer) throws Exception {
+        this.readBalances(currency, null, consumer);
+    }
+
+    /**
+     * @deprecated Collects all balances in memory and looks up every player. Use {@link #readBalances(Currency, Consumer)} instead.
+     */
     @NotNull
-    public abstract Map<OfflinePlayer, Double> getBalances(@NotNull Currency currency);
+    @Deprecated
+    public Map<OfflinePlayer, Double> getBalances(@NotNull Currency currency) {
+        Map<OfflinePlayer, Double> balances = new HashMap<>();
+
+        try {
+            this.readBalances(currency, record -> balances.put(this.plugin.getServer().getOfflinePlayer(record.playerId()), record.balance()));
+        }
+        catch (Exception exception) {
+            exception.printStackTrace();
+        }
+
+        return balances;
+    }
 }
@@ -2,21 +2,36 @@ package su.nightexpress.coinsengine.migration.impl;
 
 import org.black_ixx.playerpoints.PlayerPoints;
 import org.black_ixx.playerpoints.manager.DataManager;
-import org.bukkit.OfflinePlayer;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import su.nightexpress.coinsengine.CoinsEnginePlugin;
 import su.nightexpress.coinsengine.api.currency.Currency;
 import su.nightexpress.coinsengine.hook.HookPlugin;
+import su.nightexpress.coinsengine.migration.MigrationRecord;
 import su.nightexpress.coinsengine.migration.Migrator;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.Statement;
-import java.util.HashMap;
-import java.util.Map;
+import java.sql.SQLException;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
+/**
+ * Reads PlayerPoints table with a forward-only cursor in a separate thread, while the calling thread writes the
+ * records. Only the bounded queue between them is kept in memory. Player names are taken from the PlayerPoints
+ * username cache, no OfflinePlayer lookups are made.
+ */
 public class PlayerPointsMigrator extends Migrator {
 
+    private static final int FETCH_SIZE = 1000;
+    private static final int QUEUE_SIZE = 5000;
+
+    private static final MigrationRecord END = new MigrationRecord(new UUID(0L, 0L), null, 0D);
+
     public PlayerPointsMigrator(@NotNull CoinsEnginePlugin plugin) {
         super(plugin, HookPlugin.PLAYER_POINTS);
     }
@@ -27,40 +42,98 @@ public class PlayerPointsMigrator extends Migrator {
     }
 
     @Override
-    @NotNull
-    public Map<OfflinePlayer, Double> getBalances(@NotNull Currency currency) {
-        Map<OfflinePlayer, Double> balances = new HashMap<>();
-
+    public void readBalances(@NotNull Currency currency, @Nullable UUID after, @NotNull Consumer<MigrationRecord> consumer) throws Exception {
         PlayerPoints playerPoints = (PlayerPoints) this.getBackend();
-        if (playerPoints == null) return balances;
-
-        Map<UUID, Integer> pointsMap = new HashMap<>();
+        if (playerPoints == null) return;
 
         DataManager dataManager = playerPoints.getManager(DataManager.class);
-        try {
-            dataManager.getDatabaseConnector().connect(connection -> {
-                String query = "SELECT * FROM " + dataManager.getTablePrefix() + "points";
-                Statement statement = connection.createStatement();
-                ResultSet resultSet = statement.executeQuery(query);
+        BlockingQueue<MigrationRecord> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        AtomicReference<Exception> readError = new AtomicReference<>();
 
-                while (resultSet.next()) {
-                    UUID uuid = UUID.fromString(resultSet.getString("uuid"));
-                    int points = resultSet.getInt("points");
-
-                    pointsMap.put(uuid, points);
+        Thread reader = new Thread(() -> {
+            try {
+                dataManager.getDatabaseConnector().connect(connection -> {
+                    try {
+                        this.readPoints(connection, dataManager.getTablePrefix(), after, queue);
+                    }
+                    catch (SQLException exception) {
+                        readError.set(exception);
+                    }
+                });
+            }
+            catch (Exception exception) {
+                readError.set(exception);
+            }
+            finally {
+                try {
+                    queue.put(END);
+                }
+                catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt(); // Writer has stopped, nobody waits for the end.
                 }
-                statement.close();
-            });
+            }
+        }, "CoinsEngine-PlayerPointsReader");
+        reader.setDaemon(true);
+        reader.start();
+
+        try {
+            while (true) {
+                MigrationRecord record = queue.take();
+                if (record == END) break;
+
+                consumer.accept(record);
+            }
         }
-        catch (Exception exception) {
-            exception.printStackTrace();
+        finally {
+            reader.interrupt();
         }
 
-        pointsMap.forEach((id, balance) -> {
-            OfflinePlayer offlinePlayer = this.plugin.getServer().getOfflinePlayer(id);
-            balances.put(offlinePlayer, (double) balance);
-        });
+        if (readError.get() != null) throw readError.get();
+    }
+
+    private void readPoints(@NotNull Connection connection, @NotNull String prefix, @Nullable UUID after, @NotNull BlockingQueue<MigrationRecord> queue) throws SQLException {
+        String pointsTable = prefix + "points";
+        String namesTable = prefix + "username_cache";
+
+        boolean hasNames;
+        try (ResultSet tables = connection.getMetaData().getTables(null, null, namesTable, null)) {
+            hasNames = tables.next();
+        }
+
+        // Keyset instead of offset: rows added during the migration do not shift already written ones.
+        String where = after == null ? "" : " WHERE p.uuid > ?";
+        String query = hasNames ?
+            "SELECT p.uuid, p.points, n.username FROM " + pointsTable + " p LEFT JOIN " + namesTable + " n ON n.uuid = p.uuid" + where + " ORDER BY p.uuid" :
+            "SELECT p.uuid, p.points FROM " + pointsTable + " p" + where + " ORDER BY p.uuid";
+
+        try (PreparedStatement statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // MySQL driver streams rows one by one only with this special fetch size, other drivers use it as a hint.
+            String product = connection.getMetaData().getDatabaseProductName().toLowerCase();
+            statement.setFetchSize(product.contains("mysql") || product.contains("mariadb") ? Integer.MIN_VALUE : FETCH_SIZE);
+            if (after != null) statement.setString(1, after.toString());
 
-        return balances;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+
+                    UUID playerId;
+                    try {
+                        playerId = UUID.fromString(resultSet.getString(1));
+                    }
+                    catch (IllegalArgumentException exception) {
+                        this.plugin.warn("Skipped PlayerPoints row with invalid UUID: '" + resultSet.getString(1) + "'.");
+                        continue;
+                    }
+
+                    String name = hasNames ? resultSet.getString(3) : null;
+                    try {
+                        queue.put(new MigrationRecord(playerId, name, resultSet.getInt(2)));
+                    }
+                    catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt(); // Writer has failed, stop reading.
+                        return;
+                    }
+                }
+            }
+        }
     }
 }
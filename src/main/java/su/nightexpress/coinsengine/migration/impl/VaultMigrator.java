@@ -3,14 +3,18 @@ package su.nightexpress.coinsengine.migration.impl;
 import net.milkbowl.vault.economy.Economy;
 import org.bukkit.OfflinePlayer;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import su.nightexpress.coinsengine.CoinsEnginePlugin;
 import su.nightexpress.coinsengine.api.currency.Currency;
 import su.nightexpress.coinsengine.hook.HookPlugin;
+import su.nightexpress.coinsengine.migration.MigrationRecord;
 import su.nightexpress.coinsengine.migration.Migrator;
 import su.nightexpress.nightcore.integration.currency.EconomyBridge;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 public class VaultMigrator extends Migrator {
 
@@ -27,20 +31,24 @@ public class VaultMigrator extends Migrator {
     }
 
     @Override
-    @NotNull
-    public Map<OfflinePlayer, Double> getBalances(@NotNull Currency currency) {
-        Map<OfflinePlayer, Double> balances = new HashMap<>();
+    public void readBalances(@NotNull Currency currency, @Nullable UUID after, @NotNull Consumer<MigrationRecord> consumer) {
+        OfflinePlayer[] offlinePlayers = this.plugin.getServer().getOfflinePlayers();
+        Arrays.sort(offlinePlayers, Comparator.comparing(OfflinePlayer::getUniqueId, PLAYER_ORDER));
 
-        for (OfflinePlayer offlinePlayer : this.plugin.getServer().getOfflinePlayers()) {
+        for (OfflinePlayer offlinePlayer : offlinePlayers) {
+            if (after != null && PLAYER_ORDER.compare(offlinePlayer.getUniqueId(), after) <= 0) continue;
+
+            double balance;
             try {
-                balances.put(offlinePlayer, this.economy.getBalance(offlinePlayer));
+                balance = this.economy.getBalance(offlinePlayer);
             }
             catch (Exception exception) {
                 this.plugin.error("Could not convert Vault <-> Economy balance for '" + offlinePlayer.getUniqueId() + "'! See stacktrace for details:");
                 exception.printStackTrace();
+                continue;
             }
-        }
 
-        return balances;
+            consumer.accept(new MigrationRecord(offlinePlayer.getUniqueId(), offlinePlayer.getName(), balance));
+        }
     }
 }
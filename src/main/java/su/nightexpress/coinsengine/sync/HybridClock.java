@@ -0,0 +1,26 @@
+package su.nightexpress.coinsengine.sync;
+
+/**
+ * Hybrid logical clock. Timestamps are wall clock milliseconds shifted left with a logical counter in the lower bits.
+ * - Timestamps of a node are strictly increasing, even if the wall clock goes backwards.
+ * - After a remote timestamp is observed, all local timestamps are greater than it, so causally later updates always
+ *   get greater versions across the network.
+ */
+public final class HybridClock {
+
+    private static final int LOGICAL_BITS = 16;
+
+    private long last;
+
+    public synchronized long now() {
+        long physical = System.currentTimeMillis() << LOGICAL_BITS;
+        this.last = Math.max(this.last + 1, physical);
+        return this.last;
+    }
+
+    public synchronized void observe(long remote) {
+        if (remote > this.last) {
+            this.last = remote;
+        }
+    }
+}
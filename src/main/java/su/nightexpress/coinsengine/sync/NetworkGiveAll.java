@@ -0,0 +1,254 @@
+package su.nightexpress.coinsengine.sync;
+
+import com.google.gson.JsonObject;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import su.nightexpress.coinsengine.CoinsEnginePlugin;
+import su.nightexpress.coinsengine.Placeholders;
+import su.nightexpress.coinsengine.api.BalanceResult;
+import su.nightexpress.coinsengine.api.currency.Currency;
+import su.nightexpress.coinsengine.config.Config;
+import su.nightexpress.coinsengine.config.Lang;
+import su.nightexpress.coinsengine.currency.operation.BulkOperation;
+import su.nightexpress.coinsengine.currency.operation.NotificationTarget;
+import su.nightexpress.coinsengine.currency.operation.OperationContext;
+import su.nightexpress.nightcore.lib.redis.jedis.Jedis;
+import su.nightexpress.nightcore.lib.redis.jedis.JedisPool;
+import su.nightexpress.nightcore.lib.redis.jedis.Pipeline;
+import su.nightexpress.nightcore.lib.redis.jedis.Response;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Gives currency to online players of all servers connected to the Redis channel.
+ * - The initiator publishes a GIVE_ALL message with a unique operation ID and applies it to its own players.
+ * - Every node applies it once per operation ID, through the batched giveall path, and replies with GIVE_ALL_ACK
+ *   containing the amount of affected players.
+ * - Before paying, nodes claim their players in a shared Redis set of the operation. Players that were already
+ *   claimed by another node (f.e. while switching servers) are skipped, so nobody is paid twice.
+ * - Every claimed player is paid, even if they left meanwhile: those are paid through the bulk (offline) path.
+ * - The initiator collects acknowledgements until the timeout and reports the total with per-node latency.
+ */
+public class NetworkGiveAll {
+
+    public static final String TYPE_GIVE_ALL = "GIVE_ALL";
+    public static final String TYPE_ACK      = "GIVE_ALL_ACK";
+
+    private static final long CLAIM_EXPIRE_SECONDS = 300L;
+    private static final long HANDLED_KEEP_TIME    = TimeUnit.MINUTES.toMillis(10);
+
+    private final CoinsEnginePlugin plugin;
+    private final RedisSyncManager  syncManager;
+    private final JedisPool         pool;
+    private final String            keyPrefix;
+
+    private final Map<String, PendingOperation> pending; // Operations started on this node.
+    private final Map<String, Long>             handled; // Operation ID -> time it was handled on this node.
+
+    public NetworkGiveAll(@NotNull CoinsEnginePlugin plugin, @NotNull RedisSyncManager syncManager, @NotNull JedisPool pool, @NotNull String channel) {
+        this.plugin = plugin;
+        this.syncManager = syncManager;
+        this.pool = pool;
+        this.keyPrefix = channel + ":giveall:";
+        this.pending = new ConcurrentHashMap<>();
+        this.handled = new ConcurrentHashMap<>();
+    }
+
+    private record NodeResult(@NotNull String nodeId, int players, long latency) {}
+
+    private static class PendingOperation {
+
+        private final CommandSender    sender;
+        private final Currency         currency;
+        private final double           amount;
+        private final long             started;
+        private final List<NodeResult> results;
+
+        private PendingOperation(@Nullable CommandSender sender, @NotNull Currency currency, double amount) {
+            this.sender = sender;
+            this.currency = currency;
+            this.amount = amount;
+            this.started = System.nanoTime();
+            this.results = Collections.synchronizedList(new ArrayList<>());
+        }
+
+        private void addResult(@NotNull String nodeId, int players) {
+            this.results.add(new NodeResult(nodeId, players, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.started)));
+        }
+    }
+
+    /**
+     * Starts the operation on all nodes, including this one. Must be called on the main thread.
+     *
+     * @param context Operation context. Executor feedback is replaced by the network report.
+     * @param currency Currency to give.
+     * @param amount Amount to give.
+     */
+    public void giveAll(@NotNull OperationContext context, @NotNull Currency currency, double amount) {
+        String operationId = UUID.randomUUID().toString();
+        String executorName = context.getExecutor().getName();
+        boolean silent = !context.shouldNotify(NotificationTarget.USER);
+
+        CommandSender sender = context.shouldNotify(NotificationTarget.EXECUTOR) ? context.getBukkitSender().orElse(null) : null;
+        PendingOperation operation = new PendingOperation(sender, currency, amount);
+        this.pending.put(operationId, operation);
+        this.markHandled(operationId);
+
+        JsonObject data = new JsonObject();
+        data.addProperty("operationId", operationId);
+        data.addProperty("originNode", this.syncManager.getNodeId());
+        data.addProperty("executor", executorName);
+        data.addProperty("currencyId", currency.getId());
+        data.addProperty("amount", amount);
+        data.addProperty("silent", silent);
+        this.syncManager.publish(TYPE_GIVE_ALL, data);
+
+        context.silentFor(NotificationTarget.EXECUTOR);
+        this.apply(operationId, context, currency, amount, players -> operation.addResult(this.syncManager.getNodeId(), players));
+
+        long timeout = Math.max(1, Config.REDIS_GIVE_ALL_TIMEOUT.get()) * 20L;
+        this.plugin.getFoliaScheduler().runLater(() -> this.report(operationId), timeout);
+    }
+
+    void handleGiveAll(@NotNull JsonObject data) {
+        String operationId = data.get("operationId").getAsString();
+        if (!this.markHandled(operationId)) return; // Duplicate delivery.
+
+        String originNode = data.get("originNode").getAsString();
+        Currency currency = this.plugin.getCurrencyRegistry().getById(data.get("currencyId").getAsString());
+        if (currency == null) {
+            this.sendAck(operationId, originNode, 0);
+            return;
+        }
+
+        double amount = data.get("amount").getAsDouble();
+        OperationContext context = OperationContext.custom(data.get("executor").getAsString() + " (" + originNode + ")")
+            .silentFor(NotificationTarget.EXECUTOR, NotificationTarget.CONSOLE_LOGGER)
+            .silentFor(NotificationTarget.USER, data.get("silent").getAsBoolean());
+
+        this.apply(operationId, context, currency, amount, players -> this.sendAck(operationId, originNode, players));
+    }
+
+    void handleAck(@NotNull JsonObject data) {
+        if (!data.get("originNode").getAsString().equals(this.syncManager.getNodeId())) return;
+
+        PendingOperation operation = this.pending.get(data.get("operationId").getAsString());
+        if (operation == null) return; // Timed out already.
+
+        operation.addResult(data.get("nodeId").getAsString(), data.get("players").getAsInt());
+    }
+
+    /**
+     * Collects online players of this node on the main thread, claims them asynchronously, then gives the amount to the claimed ones on the main thread.
+     * Claimed players who are not online anymore are paid asynchronously through the bulk path.
+     */
+    private void apply(@NotNull String operationId, @NotNull OperationContext context, @NotNull Currency currency, double amount, @NotNull IntConsumer callback) {
+        if (!Bukkit.isPrimaryThread()) {
+            this.plugin.runNextTick(() -> this.apply(operationId, context, currency, amount, callback));
+            return;
+        }
+
+        List<UUID> online = Bukkit.getOnlinePlayers().stream().map(Player::getUniqueId).toList();
+
+        this.plugin.runTaskAsync(() -> {
+            Set<UUID> claimed;
+            try {
+                claimed = this.claim(operationId, online);
+            }
+            catch (Exception exception) {
+                this.plugin.error("Could not claim players for network giveall: " + exception.getMessage());
+                callback.accept(0);
+                return;
+            }
+
+            this.plugin.runNextTick(() -> {
+                Map<UUID, Double> left = new HashMap<>();
+                claimed.forEach(playerId -> {
+                    if (Bukkit.getPlayer(playerId) == null) left.put(playerId, amount);
+                });
+
+                int players = Math.max(0, this.plugin.getCurrencyManager().giveAll(context, currency, amount, claimed::contains));
+                if (left.isEmpty()) {
+                    callback.accept(players);
+                    return;
+                }
+
+                // No other node will pay them for this operation, as they are claimed here already.
+                this.plugin.runTaskAsync(() -> {
+                    Map<UUID, BalanceResult> results = this.plugin.getCurrencyManager().editBalances(context, currency, BulkOperation.GIVE, left);
+                    long paid = results.values().stream().filter(result -> result.status() == BalanceResult.Status.SUCCESS).count();
+                    callback.accept(players + (int) paid);
+                });
+            });
+        });
+    }
+
+    @NotNull
+    private Set<UUID> claim(@NotNull String operationId, @NotNull List<UUID> playerIds) {
+        Set<UUID> claimed = new HashSet<>();
+        if (playerIds.isEmpty()) return claimed;
+
+        String key = this.keyPrefix + operationId;
+        Map<UUID, Response<Long>> responses = new HashMap<>();
+
+        try (Jedis jedis = this.pool.getResource(); Pipeline pipeline = jedis.pipelined()) {
+            playerIds.forEach(playerId -> responses.put(playerId, pipeline.sadd(key, playerId.toString())));
+            pipeline.expire(key, CLAIM_EXPIRE_SECONDS);
+            pipeline.sync();
+        }
+
+        responses.forEach((playerId, response) -> {
+            if (response.get() == 1L) claimed.add(playerId);
+        });
+        return claimed;
+    }
+
+    private void sendAck(@NotNull String operationId, @NotNull String originNode, int players) {
+        JsonObject data = new JsonObject();
+        data.addProperty("operationId", operationId);
+        data.addProperty("originNode", originNode);
+        data.addProperty("nodeId", this.syncManager.getNodeId());
+        data.addProperty("players", players);
+        this.syncManager.publish(TYPE_ACK, data);
+    }
+
+    private boolean markHandled(@NotNull String operationId) {
+        long now = System.currentTimeMillis();
+        this.handled.values().removeIf(time -> now - time > HANDLED_KEEP_TIME);
+        return this.handled.putIfAbsent(operationId, now) == null;
+    }
+
+    private void report(@NotNull String operationId) {
+        PendingOperation operation = this.pending.remove(operationId);
+        if (operation == null || operation.sender == null) return;
+
+        List<NodeResult> results;
+        synchronized (operation.results) {
+            results = new ArrayList<>(operation.results);
+        }
+        results.sort(Comparator.comparing(NodeResult::nodeId));
+
+        Currency currency = operation.currency;
+        int players = results.stream().mapToInt(NodeResult::players).sum();
+
+        currency.sendPrefixed(Lang.COMMAND_CURRENCY_GIVE_ALL_NETWORK_DONE, operation.sender, replacer -> replacer
+            .replace(Placeholders.GENERIC_AMOUNT, currency.format(operation.amount))
+            .replace(Placeholders.GENERIC_VALUE, String.valueOf(players))
+            .replace(Placeholders.GENERIC_CURRENT, String.valueOf(results.size()))
+        );
+
+        results.forEach(result -> {
+            currency.sendPrefixed(Lang.COMMAND_CURRENCY_GIVE_ALL_NETWORK_NODE, operation.sender, replacer -> replacer
+                .replace(Placeholders.GENERIC_NAME, result.nodeId())
+                .replace(Placeholders.GENERIC_VALUE, String.valueOf(result.players()))
+                .replace(Placeholders.GENERIC_CURRENT, String.valueOf(result.latency()))
+            );
+        });
+    }
+}
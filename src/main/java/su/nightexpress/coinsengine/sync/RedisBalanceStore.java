@@ -0,0 +1,321 @@
+package su.nightexpress.coinsengine.sync;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import su.nightexpress.coinsengine.CoinsEnginePlugin;
+import su.nightexpress.coinsengine.api.currency.Currency;
+import su.nightexpress.coinsengine.data.impl.CoinsUser;
+import su.nightexpress.nightcore.lib.redis.jedis.Jedis;
+import su.nightexpress.nightcore.lib.redis.jedis.JedisPool;
+import su.nightexpress.nightcore.lib.redis.jedis.Pipeline;
+import su.nightexpress.nightcore.lib.redis.jedis.Response;
+import su.nightexpress.nightcore.lib.redis.jedis.exceptions.JedisNoScriptException;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Authoritative balance store in Redis. Balances of each user are kept in a hash, one field per currency.
+ * - Every operation is a Lua script, so checking funds and changing balances is atomic across all nodes.
+ * - Missing fields are seeded with the balance loaded from the database before the operation is applied.
+ * - Database rows are updated asynchronously afterwards (see BalanceFlusher) and serve as a durable copy.
+ * - Scripts return balances as strings, because Redis truncates Lua numbers to integers.
+ */
+public class RedisBalanceStore {
+
+    // Shared helpers. ARGV layout of each script is documented next to it.
+    private static final String PREFIX = """
+        local function fmt(value) return string.format('%.17g', value) end
+        local function limit(value, max)
+            if max >= 0 and value > max then value = max end
+            if value < 0 then value = 0 end
+            return value
+        end
+        local function get(key, field, seed)
+            redis.call('HSETNX', key, field, seed)
+            return tonumber(redis.call('HGET', key, field))
+        end
+        """;
+
+    // KEYS: user. ARGV: currency, seed, delta, max. Adds the delta, result is limited to [0, max].
+    private static final String SCRIPT_ADD = PREFIX + """
+        local balance = limit(get(KEYS[1], ARGV[1], ARGV[2]) + tonumber(ARGV[3]), tonumber(ARGV[4]))
+        redis.call('HSET', KEYS[1], ARGV[1], fmt(balance))
+        return fmt(balance)
+        """;
+
+    // KEYS: user. ARGV: currency, seed, amount. Fails if balance is lower than the amount.
+    private static final String SCRIPT_WITHDRAW = PREFIX + """
+        local balance = get(KEYS[1], ARGV[1], ARGV[2])
+        local amount = tonumber(ARGV[3])
+        if balance < amount then return false end
+        balance = balance - amount
+        redis.call('HSET', KEYS[1], ARGV[1], fmt(balance))
+        return fmt(balance)
+        """;
+
+    // KEYS: user. ARGV: currency, value, max.
+    private static final String SCRIPT_SET = PREFIX + """
+        local balance = limit(tonumber(ARGV[2]), tonumber(ARGV[3]))
+        redis.call('HSET', KEYS[1], ARGV[1], fmt(balance))
+        return fmt(balance)
+        """;
+
+    // KEYS: sender, target. ARGV: currency, sender seed, target seed, amount, max.
+    // Fails if sender has not enough funds or target balance would exceed the max, so nothing is clamped away.
+    private static final String SCRIPT_TRANSFER = PREFIX + """
+        local from = get(KEYS[1], ARGV[1], ARGV[2])
+        local to = get(KEYS[2], ARGV[1], ARGV[3])
+        local amount = tonumber(ARGV[4])
+        local max = tonumber(ARGV[5])
+        if from < amount then return false end
+        if max >= 0 and to + amount > max then return false end
+        from = from - amount
+        to = to + amount
+        redis.call('HSET', KEYS[1], ARGV[1], fmt(from))
+        redis.call('HSET', KEYS[2], ARGV[1], fmt(to))
+        return {fmt(from), fmt(to)}
+        """;
+
+    // KEYS: user. ARGV: source currency, source seed, target currency, target seed, amount, result, target max.
+    // Fails if there are not enough funds of the source currency or target balance would exceed the max.
+    private static final String SCRIPT_EXCHANGE = PREFIX + """
+        local source = get(KEYS[1], ARGV[1], ARGV[2])
+        local target = get(KEYS[1], ARGV[3], ARGV[4])
+        local amount = tonumber(ARGV[5])
+        local result = tonumber(ARGV[6])
+        local max = tonumber(ARGV[7])
+        if source < amount then return false end
+        if max >= 0 and target + result > max then return false end
+        source = source - amount
+        target = target + result
+        redis.call('HSET', KEYS[1], ARGV[1], fmt(source))
+        redis.call('HSET', KEYS[1], ARGV[3], fmt(target))
+        return {fmt(source), fmt(target)}
+        """;
+
+    private final CoinsEnginePlugin plugin;
+    private final JedisPool         pool;
+    private final String            keyPrefix;
+
+    private final Map<String, String> hashes; // Script -> SHA1 of the loaded script.
+
+    public RedisBalanceStore(@NotNull CoinsEnginePlugin plugin, @NotNull JedisPool pool, @NotNull String keyPrefix) {
+        this.plugin = plugin;
+        this.pool = pool;
+        this.keyPrefix = keyPrefix;
+        this.hashes = new HashMap<>();
+    }
+
+    public void setup() {
+        try (Jedis jedis = this.pool.getResource()) {
+            for (String script : List.of(SCRIPT_ADD, SCRIPT_WITHDRAW, SCRIPT_SET, SCRIPT_TRANSFER, SCRIPT_EXCHANGE)) {
+                this.hashes.put(script, jedis.scriptLoad(script));
+            }
+        }
+    }
+
+    @NotNull
+    private String key(@NotNull UUID playerId) {
+        return this.keyPrefix + playerId;
+    }
+
+    private static String max(@NotNull Currency currency) {
+        return currency.isLimited() ? String.valueOf(currency.getMaxValue()) : "-1";
+    }
+
+    @Nullable
+    private Object run(@NotNull String script, @NotNull List<String> keys, @NotNull List<String> args) {
+        try (Jedis jedis = this.pool.getResource()) {
+            String hash = this.hashes.get(script);
+            try {
+                return hash == null ? jedis.eval(script, keys, args) : jedis.evalsha(hash, keys, args);
+            }
+            catch (JedisNoScriptException exception) {
+                // Script cache was flushed on the server, eval loads it again.
+                return jedis.eval(script, keys, args);
+            }
+        }
+    }
+
+    /**
+     * Adds (or removes, if negative) the amount. Result is limited by zero and max. balance of the currency.
+     *
+     * @return New balance.
+     */
+    public double add(@NotNull CoinsUser user, @NotNull Currency currency, double delta) {
+        Object result = this.run(SCRIPT_ADD, List.of(this.key(user.getId())), List.of(
+            currency.getId(), String.valueOf(user.getBalance(currency)), String.valueOf(delta), max(currency)
+        ));
+        return Double.parseDouble(String.valueOf(result));
+    }
+
+    /**
+     * Removes the amount only if the user has enough funds.
+     *
+     * @return New balance, or null if there are not enough funds.
+     */
+    @Nullable
+    public Double withdraw(@NotNull CoinsUser user, @NotNull Currency currency, double amount) {
+        Object result = this.run(SCRIPT_WITHDRAW, List.of(this.key(user.getId())), List.of(
+            currency.getId(), String.valueOf(user.getBalance(currency)), String.valueOf(amount)
+        ));
+        return result == null ? null : Double.parseDouble(String.valueOf(result));
+    }
+
+    /**
+     * @return New balance.
+     */
+    public double set(@NotNull CoinsUser user, @NotNull Currency currency, double value) {
+        Object result = this.run(SCRIPT_SET, List.of(this.key(user.getId())), List.of(
+            currency.getId(), String.valueOf(value), max(currency)
+        ));
+        return Double.parseDouble(String.valueOf(result));
+    }
+
+    /**
+     * Moves the amount between two users atomically.
+     *
+     * @return New balances of the sender and the target, or null if sender has not enough funds or target balance
+     * would exceed the max. balance.
+     */
+    @Nullable
+    public double[] transfer(@NotNull CoinsUser from, @NotNull CoinsUser to, @NotNull Currency currency, double amount) {
+        Object result = this.run(SCRIPT_TRANSFER, List.of(this.key(from.getId()), this.key(to.getId())), List.of(
+            currency.getId(), String.valueOf(from.getBalance(currency)), String.valueOf(to.getBalance(currency)), String.valueOf(amount), max(currency)
+        ));
+        return parsePair(result);
+    }
+
+    /**
+     * Exchanges the amount of the source currency for the result of the target currency atomically.
+     *
+     * @return New balances of the source and target currencies, or null if there are not enough funds or target
+     * balance would exceed the max. balance.
+     */
+    @Nullable
+    public double[] exchange(@NotNull CoinsUser user, @NotNull Currency source, @NotNull Currency target, double amount, double result) {
+        Object reply = this.run(SCRIPT_EXCHANGE, List.of(this.key(user.getId())), List.of(
+            source.getId(), String.valueOf(user.getBalance(source)),
+            target.getId(), String.valueOf(user.getBalance(target)),
+            String.valueOf(amount), String.valueOf(result), max(target)
+        ));
+        return parsePair(reply);
+    }
+
+    /**
+     * Adds (or removes, if negative) amounts for many users in one pipeline. Results are limited the same way as
+     * in {@link #add(CoinsUser, Currency, double)}.
+     *
+     * @return New balances by player ID. Users whose script failed are missing.
+     */
+    @NotNull
+    public Map<UUID, Double> addAll(@NotNull Currency currency, @NotNull Map<CoinsUser, Double> deltas) {
+        Map<CoinsUser, List<String>> args = new HashMap<>();
+        deltas.forEach((user, delta) -> args.put(user, List.of(
+            currency.getId(), String.valueOf(user.getBalance(currency)), String.valueOf(delta), max(currency)
+        )));
+        return this.runAll(SCRIPT_ADD, args);
+    }
+
+    /**
+     * Removes amounts for many users in one pipeline, only from those who have enough funds, same as in
+     * {@link #withdraw(CoinsUser, Currency, double)}.
+     *
+     * @return New balances by player ID. Users without enough funds or whose script failed are missing.
+     */
+    @NotNull
+    public Map<UUID, Double> withdrawAll(@NotNull Currency currency, @NotNull Map<CoinsUser, Double> amounts) {
+        Map<CoinsUser, List<String>> args = new HashMap<>();
+        amounts.forEach((user, amount) -> args.put(user, List.of(
+            currency.getId(), String.valueOf(user.getBalance(currency)), String.valueOf(amount)
+        )));
+        return this.runAll(SCRIPT_WITHDRAW, args);
+    }
+
+    /**
+     * Sets balances of many users in one pipeline.
+     *
+     * @return New balances by player ID. Users whose script failed are missing.
+     */
+    @NotNull
+    public Map<UUID, Double> setAll(@NotNull Currency currency, @NotNull Map<CoinsUser, Double> values) {
+        Map<CoinsUser, List<String>> args = new HashMap<>();
+        values.forEach((user, value) -> args.put(user, List.of(currency.getId(), String.valueOf(value), max(currency))));
+        return this.runAll(SCRIPT_SET, args);
+    }
+
+    @NotNull
+    private Map<UUID, Double> runAll(@NotNull String script, @NotNull Map<CoinsUser, List<String>> args) {
+        Map<UUID, Double> balances = new HashMap<>();
+        if (args.isEmpty()) return balances;
+
+        try (Jedis jedis = this.pool.getResource()) {
+            // Make sure the script is cached on the server, a pipeline can not fall back to eval per command.
+            String hash = jedis.scriptLoad(script);
+
+            Map<UUID, Response<Object>> responses = new HashMap<>();
+            try (Pipeline pipeline = jedis.pipelined()) {
+                args.forEach((user, userArgs) -> responses.put(user.getId(), pipeline.evalsha(hash, List.of(this.key(user.getId())), userArgs)));
+                pipeline.sync();
+            }
+
+            responses.forEach((playerId, response) -> {
+                try {
+                    Object result = response.get();
+                    if (result == null) return; // Refused by the script, f.e. not enough funds.
+
+                    balances.put(playerId, Double.parseDouble(String.valueOf(result)));
+                }
+                catch (Exception exception) {
+                    this.plugin.warn("Could not update balance of " + playerId + " in Redis store: " + exception.getMessage());
+                }
+            });
+        }
+
+        return balances;
+    }
+
+    /**
+     * Removes stored balances of the given currencies, so they are seeded from the database on the next operation.
+     */
+    public void clear(@NotNull Collection<UUID> playerIds, @NotNull Collection<Currency> currencies) {
+        String[] fields = currencies.stream().map(Currency::getId).toArray(String[]::new);
+
+        try (Jedis jedis = this.pool.getResource(); Pipeline pipeline = jedis.pipelined()) {
+            playerIds.forEach(playerId -> pipeline.hdel(this.key(playerId), fields));
+            pipeline.sync();
+        }
+    }
+
+    /**
+     * @return All balances stored for the user, by currency ID.
+     */
+    @NotNull
+    public Map<String, Double> getBalances(@NotNull UUID playerId) {
+        Map<String, Double> balances = new HashMap<>();
+
+        try (Jedis jedis = this.pool.getResource()) {
+            jedis.hgetAll(this.key(playerId)).forEach((currencyId, value) -> {
+                try {
+                    balances.put(currencyId, Double.parseDouble(value));
+                }
+                catch (NumberFormatException exception) {
+                    this.plugin.warn("Invalid balance '" + value + "' of '" + currencyId + "' in Redis for " + playerId);
+                }
+            });
+        }
+
+        return balances;
+    }
+
+    @Nullable
+    private static double[] parsePair(@Nullable Object result) {
+        if (!(result instanceof List<?> list) || list.size() < 2) return null;
+
+        return new double[]{Double.parseDouble(String.valueOf(list.get(0))), Double.parseDouble(String.valueOf(list.get(1)))};
+    }
+}
@@ -1,33 +1,39 @@
 package su.nightexpress.coinsengine.sync;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import su.nightexpress.coinsengine.config.Lang;
 import su.nightexpress.coinsengine.Placeholders;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
+import su.nightexpress.nightcore.lib.redis.jedis.BinaryJedisPubSub;
 import su.nightexpress.nightcore.lib.redis.jedis.DefaultJedisClientConfig;
 import su.nightexpress.nightcore.lib.redis.jedis.HostAndPort;
 import su.nightexpress.nightcore.lib.redis.jedis.Jedis;
 import su.nightexpress.nightcore.lib.redis.jedis.JedisPool;
-import su.nightexpress.nightcore.lib.redis.jedis.JedisPubSub;
 import su.nightexpress.nightcore.lib.commons.pool2.impl.GenericObjectPoolConfig;
+import su.nightexpress.nightcore.util.LowerCase;
 import su.nightexpress.coinsengine.CoinsEnginePlugin;
 import su.nightexpress.coinsengine.Placeholders;
 import su.nightexpress.coinsengine.api.currency.Currency;
 import su.nightexpress.coinsengine.config.Config;
 import su.nightexpress.coinsengine.config.Lang;
 import su.nightexpress.coinsengine.data.impl.CoinsUser;
+import su.nightexpress.coinsengine.sync.SyncProtocol.BalanceChange;
+import su.nightexpress.coinsengine.sync.SyncProtocol.BalanceRecord;
+import su.nightexpress.coinsengine.sync.SyncProtocol.MessageRecord;
 import su.nightexpress.coinsengine.tops.TopEntry;
 
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-import java.util.UUID;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Redis synchronization manager for CoinsEngine
@@ -35,16 +41,31 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class RedisSyncManager {
 
+    private static final long REPLICATION_KEEP_TIME = TimeUnit.MINUTES.toMillis(5);
+
     private final CoinsEnginePlugin plugin;
     private JedisPool pool;
-    private JedisPubSub subscriber;
+    private BinaryJedisPubSub subscriber;
     private Thread subscriberThread;
+    private SyncPublisher publisher;
+    private RedisBalanceStore balanceStore;
+    private NetworkGiveAll networkGiveAll;
 
     private final Gson gson;
     private final String nodeId;
+    private final HybridClock clock;
+    private final ReplicationState replication;
+    private final AtomicLong discardedChanges;
+
+    // Incoming balance changes of a user are applied in the order they were received.
+    private final Map<UUID, CompletableFuture<CoinsUser>> userChains = new ConcurrentHashMap<>();
     private String channel;
+    private byte[] channelBytes;
     private volatile boolean active;
 
+    private boolean binaryProtocol;
+    private long batchWindow;
+
     private long balanceSyncInterval;
     private long leaderboardSyncInterval;
 
@@ -53,9 +74,10 @@ public class RedisSyncManager {
 
     public RedisSyncManager(@NotNull CoinsEnginePlugin plugin) {
         this.plugin = plugin;
-        this.gson = new GsonBuilder()
-            .setPrettyPrinting()
-            .create();
+        this.gson = new Gson();
+        this.clock = new HybridClock();
+        this.replication = new ReplicationState();
+        this.discardedChanges = new AtomicLong();
 
         String nid = Config.REDIS_NODE_ID.get();
         if (nid == null || nid.isBlank()) {
@@ -74,6 +96,9 @@ public class RedisSyncManager {
         String password = Config.REDIS_PASSWORD.get();
         boolean ssl = Config.REDIS_SSL.get();
         this.channel = Config.REDIS_CHANNEL.get();
+        this.channelBytes = this.channel.getBytes(StandardCharsets.UTF_8);
+        this.binaryProtocol = Config.REDIS_PROTOCOL_BINARY.get();
+        this.batchWindow = Math.max(1, Config.REDIS_PROTOCOL_BATCH_WINDOW.get());
 
         this.balanceSyncInterval = Config.REDIS_BALANCE_SYNC_INTERVAL.get() * 20L;
         this.leaderboardSyncInterval = Config.REDIS_LEADERBOARD_SYNC_INTERVAL.get() * 20L;
@@ -96,11 +121,14 @@ public class RedisSyncManager {
             poolConfig.setTimeBetweenEvictionRunsMillis(30000);
 
             this.pool = new JedisPool(poolConfig, new HostAndPort(host, port), clientConfig);
+            this.startPublisher();
+            this.setupBalanceStore();
+            this.networkGiveAll = new NetworkGiveAll(this.plugin, this, this.pool, this.channel);
             this.active = true;
             this.startSubscriber();
             this.startPeriodicSync();
 
-            this.plugin.info("Redis sync enabled. Channel: " + this.channel + " | NodeId: " + this.nodeId);
+            this.plugin.info("Redis sync enabled. Channel: " + this.channel + " | NodeId: " + this.nodeId + " | Protocol: " + (this.binaryProtocol ? "binary v" + SyncProtocol.VERSION : "json"));
         }
         catch (Exception e) {
             this.plugin.error("Failed to initialize Redis: " + e.getMessage());
@@ -110,6 +138,12 @@ public class RedisSyncManager {
 
     public void shutdown() {
         this.active = false;
+        try {
+            if (this.publisher != null) {
+                this.publisher.shutdown(); // Publishes messages queued before shutdown.
+            }
+        }
+        catch (Exception ignored) {}
         try {
             if (this.subscriber != null) {
                 this.subscriber.unsubscribe();
@@ -150,6 +184,11 @@ public class RedisSyncManager {
         }
 
         this.plugin.getFoliaScheduler().runTimerAsync(this::syncPlayerNames, 0L, 600L); // 30 seconds
+
+        // Loaded users are checked on the main thread, their state is dropped on unload anyway.
+        this.plugin.getFoliaScheduler().runTimer(() -> {
+            this.replication.purge(REPLICATION_KEEP_TIME, this.plugin.getUserManager()::isLoaded);
+        }, 1200L, 1200L); // 1 minute
     }
 
     /* =========================
@@ -157,21 +196,109 @@ public class RedisSyncManager {
        ========================= */
 
     /**
-     * Publishes user balance update across servers
+     * Publishes full user balance across servers. Receiving nodes use it only for balances they have no versioned
+     * changes for.
      */
     public void publishUserBalance(@NotNull CoinsUser user) {
         if (!isActive()) return;
 
+        List<BalanceChange> changes = new ArrayList<>();
+        for (Currency currency : this.plugin.getCurrencyManager().getCurrencies()) {
+            changes.add(new BalanceChange(currency.getId(), BalanceChange.STATE, user.getBalance(currency), 0D, this.clock.now()));
+        }
+        this.publishBalanceChanges(user, changes);
+    }
+
+    /**
+     * Publishes balance change made by adding (or removing, if negative) the delta. Receiving nodes add the delta to
+     * their balance, so concurrent changes on different nodes are merged.
+     */
+    public void publishBalanceDelta(@NotNull CoinsUser user, @NotNull Currency currency, double delta) {
+        if (!isActive() || delta == 0D) return;
+
+        double balance = user.getBalance(currency);
+        this.publishBalanceChanges(user, List.of(new BalanceChange(currency.getId(), BalanceChange.DELTA, balance, delta, this.clock.now())));
+    }
+
+    /**
+     * Publishes balance change made by setting the exact value. The latest set wins across the network.
+     */
+    public void publishBalanceSet(@NotNull CoinsUser user, @NotNull Currency currency) {
+        if (!isActive()) return;
+
+        double balance = user.getBalance(currency);
+        this.publishBalanceChanges(user, List.of(new BalanceChange(currency.getId(), BalanceChange.SET, balance, 0D, this.clock.now())));
+    }
+
+    /**
+     * Publishes balance changes of a bulk operation. Changes of all users are sent together in a single frame.
+     *
+     * @param currency Changed currency.
+     * @param deltas Balance difference by user.
+     * @param set Whether balances were set to exact values rather than changed by the deltas.
+     */
+    public void publishBalanceChanges(@NotNull Currency currency, @NotNull Map<CoinsUser, Double> deltas, boolean set) {
+        if (!isActive()) return;
+
+        long version = this.clock.now();
+        List<BalanceRecord> records = new ArrayList<>(deltas.size());
+
+        deltas.forEach((user, delta) -> {
+            if (!set && delta == 0D) return;
+
+            double balance = user.getBalance(currency);
+            BalanceChange change = set ?
+                new BalanceChange(currency.getId(), BalanceChange.SET, balance, 0D, version) :
+                new BalanceChange(currency.getId(), BalanceChange.DELTA, balance, delta, version);
+
+            this.replication.recordLocal(user.getId(), this.nodeId, change);
+            if (this.binaryProtocol) {
+                records.add(new BalanceRecord(user.getId(), user.getName(), user.isHiddenFromTops(), List.of(change)));
+            }
+            else this.publishLegacyUserBalance(user, List.of(change));
+        });
+
+        if (!records.isEmpty()) this.publisher.enqueueBatch(records);
+    }
+
+    private void publishBalanceChanges(@NotNull CoinsUser user, @NotNull List<BalanceChange> changes) {
+        changes.forEach(change -> this.replication.recordLocal(user.getId(), this.nodeId, change));
+
+        if (!this.binaryProtocol) {
+            this.publishLegacyUserBalance(user, changes);
+            return;
+        }
+
+        this.publisher.enqueueBalance(user, changes);
+    }
+
+    /**
+     * Publishes changes in the JSON format. The "changes" array carries the same versioned changes as the binary
+     * protocol. The "balances" object keeps the new balances of the changed currencies for nodes that do not know
+     * the array yet.
+     */
+    private void publishLegacyUserBalance(@NotNull CoinsUser user, @NotNull List<BalanceChange> changes) {
         JsonObject data = new JsonObject();
         data.addProperty("userId", user.getId().toString());
         data.addProperty("userName", user.getName());
-        
+
         JsonObject balances = new JsonObject();
-        for (Currency currency : this.plugin.getCurrencyManager().getCurrencies()) {
-            balances.addProperty(currency.getId(), user.getBalance(currency));
+        JsonArray versioned = new JsonArray();
+        for (BalanceChange change : changes) {
+            balances.addProperty(change.currencyId(), change.balance());
+
+            JsonObject json = new JsonObject();
+            json.addProperty("currencyId", change.currencyId());
+            json.addProperty("op", change.operation());
+            json.addProperty("balance", change.balance());
+            json.addProperty("delta", change.delta());
+            json.addProperty("version", change.version());
+            versioned.add(json);
         }
         data.add("balances", balances);
-        
+        data.add("changes", versioned);
+
+
         JsonObject settings = new JsonObject();
         settings.addProperty("hiddenFromTops", user.isHiddenFromTops());
         data.add("settings", settings);
@@ -318,8 +445,9 @@ public class RedisSyncManager {
         this.plugin.getTopManager().ifPresent(topManager -> {
             for (Currency currency : this.plugin.getCurrencyManager().getCurrencies()) {
                 if (currency.isLeaderboardEnabled()) {
-                    Map<String, TopEntry> entries = topManager.getTopEntriesMap().get(currency.getId());
-                    if (entries != null && !entries.isEmpty()) {
+                    Map<String, TopEntry> entries = new LinkedHashMap<>();
+                    topManager.getTopEntries(currency).forEach(entry -> entries.put(LowerCase.INTERNAL.apply(entry.getName()), entry));
+                    if (!entries.isEmpty()) {
                         publishLeaderboard(currency.getId(), entries);
                     }
                 }
@@ -346,22 +474,53 @@ public class RedisSyncManager {
     /**
      * Core publish method
      */
-    private void publish(@NotNull String type, @NotNull JsonObject data) {
+    void publish(@NotNull String type, @NotNull JsonObject data) {
         if (!isActive()) return;
 
+        if (this.binaryProtocol) {
+            this.publisher.enqueue(new MessageRecord(type, this.gson.toJson(data)));
+            return;
+        }
+
         JsonObject root = new JsonObject();
         root.addProperty("type", type);
         root.addProperty("nodeId", this.nodeId);
         root.add("data", data);
 
-        this.plugin.getFoliaScheduler().runAsync(() -> {
-            try (Jedis jedis = this.pool.getResource()) {
-                jedis.publish(this.channel, this.gson.toJson(root));
-            }
-            catch (Exception e) {
-                this.plugin.warn("Redis publish failed: " + e.getMessage());
-            }
-        });
+        this.publisher.enqueue(new MessageRecord(type, this.gson.toJson(root)));
+    }
+
+    private void startPublisher() {
+        this.publisher = new SyncPublisher(this.plugin, this.pool, this.channel, this.nodeId,
+            this.binaryProtocol,
+            this.batchWindow,
+            Config.REDIS_PROTOCOL_QUEUE_SIZE.get(),
+            Config.REDIS_PROTOCOL_QUEUE_TIMEOUT.get()
+        );
+        this.publisher.start();
+    }
+
+    private void setupBalanceStore() {
+        if (!Config.isRedisStoreEnabled()) return;
+
+        this.balanceStore = new RedisBalanceStore(this.plugin, this.pool, Config.REDIS_STORE_KEY_PREFIX.get());
+        this.balanceStore.setup();
+        this.plugin.info("Redis balance store enabled. Balances are stored in Redis and copied to the database.");
+    }
+
+    @NotNull
+    public Optional<RedisBalanceStore> getBalanceStore() {
+        return Optional.ofNullable(this.balanceStore);
+    }
+
+    @NotNull
+    public Optional<NetworkGiveAll> getNetworkGiveAll() {
+        return Optional.ofNullable(this.isActive() ? this.networkGiveAll : null);
+    }
+
+    @NotNull
+    public Optional<SyncPublisher> getPublisher() {
+        return Optional.ofNullable(this.publisher);
     }
 
     /* =========================
@@ -369,9 +528,9 @@ public class RedisSyncManager {
        ========================= */
 
     private void startSubscriber() {
-        this.subscriber = new JedisPubSub() {
+        this.subscriber = new BinaryJedisPubSub() {
             @Override
-            public void onMessage(String channel, String message) {
+            public void onMessage(byte[] channel, byte[] message) {
                 handleIncoming(message);
             }
         };
@@ -379,7 +538,7 @@ public class RedisSyncManager {
         this.subscriberThread = new Thread(() -> {
             while (this.active) {
                 try (Jedis jedis = this.pool.getResource()) {
-                    jedis.subscribe(this.subscriber, this.channel);
+                    jedis.subscribe(this.subscriber, this.channelBytes);
                 }
                 catch (Exception e) {
                     this.plugin.error("Redis subscriber error: " + e.getMessage());
@@ -400,28 +559,23 @@ public class RedisSyncManager {
         this.subscriberThread.start();
     }
 
-    private void handleIncoming(@NotNull String message) {
+    private void handleIncoming(byte[] payload) {
         try {
-            JsonObject root = gson.fromJson(message, JsonObject.class);
-            String sourceNodeId = root.get("nodeId").getAsString();
-
-            if (sourceNodeId.equals(this.nodeId)) {
+            if (SyncProtocol.isLegacy(payload)) {
+                this.handleLegacy(new String(payload, StandardCharsets.UTF_8));
                 return;
             }
+            if (!SyncProtocol.isFrame(payload)) return;
 
-            String type = root.get("type").getAsString();
-            JsonObject data = root.getAsJsonObject("data");
-
-            switch (type) {
-                case "USER_BALANCE_UPDATE" -> applyUserBalanceUpdate(data);
-                case "CURRENCY_OPERATION" -> applyCurrencyOperation(data);
-                case "LEADERBOARD_UPDATE" -> applyLeaderboardUpdate(data);
-                case "TRANSACTION_LOG" -> applyTransactionLog(data);
-                case "USER_SYNC_REQUEST" -> handleUserSyncRequest(data);
-                case "USER_CREATE_REQUEST" -> handleUserCreateRequest(data);
-                case "PAYMENT_NOTIFICATION" -> applyPaymentNotification(data);
-                case "PLAYER_NAMES_UPDATE" -> applyPlayerNamesUpdate(data);
-                default -> {}
+            SyncProtocol.Frame frame = SyncProtocol.decode(payload);
+            if (frame.nodeId().equals(this.nodeId)) return;
+
+            for (BalanceRecord record : frame.balances()) {
+                this.applyBalanceRecord(frame.nodeId(), record);
+            }
+
+            for (MessageRecord record : frame.messages()) {
+                this.handleMessage(frame.nodeId(), record.type(), this.gson.fromJson(record.json(), JsonObject.class));
             }
         }
         catch (Exception e) {
@@ -429,41 +583,154 @@ public class RedisSyncManager {
         }
     }
 
+    private void handleLegacy(@NotNull String message) {
+        JsonObject root = gson.fromJson(message, JsonObject.class);
+        String sourceNodeId = root.get("nodeId").getAsString();
+
+        if (sourceNodeId.equals(this.nodeId)) {
+            return;
+        }
+
+        String type = root.get("type").getAsString();
+        JsonObject data = root.getAsJsonObject("data");
+
+        this.handleMessage(sourceNodeId, type, data);
+    }
+
+    private void handleMessage(@NotNull String sourceNodeId, @NotNull String type, @NotNull JsonObject data) {
+        switch (type) {
+            case "USER_BALANCE_UPDATE" -> applyUserBalanceUpdate(sourceNodeId, data);
+            case "CURRENCY_OPERATION" -> applyCurrencyOperation(data);
+            case "LEADERBOARD_UPDATE" -> applyLeaderboardUpdate(data);
+            case "TRANSACTION_LOG" -> applyTransactionLog(data);
+            case "USER_SYNC_REQUEST" -> handleUserSyncRequest(data);
+            case "USER_CREATE_REQUEST" -> handleUserCreateRequest(data);
+            case "PAYMENT_NOTIFICATION" -> applyPaymentNotification(data);
+            case "PLAYER_NAMES_UPDATE" -> applyPlayerNamesUpdate(data);
+            case NetworkGiveAll.TYPE_GIVE_ALL -> this.networkGiveAll.handleGiveAll(data);
+            case NetworkGiveAll.TYPE_ACK -> this.networkGiveAll.handleAck(data);
+            default -> {}
+        }
+    }
+
     /* =========================
        Message Handlers
        ========================= */
 
-    private void applyUserBalanceUpdate(@NotNull JsonObject data) {
+    private void applyUserBalanceUpdate(@NotNull String sourceNodeId, @NotNull JsonObject data) {
         UUID userId = UUID.fromString(data.get("userId").getAsString());
-        String userName = data.get("userName").getAsString();
-        JsonObject balances = data.getAsJsonObject("balances");
         JsonObject settings = data.getAsJsonObject("settings");
 
-        // Update snapshot immediately to keep non-blocking reads consistent
-        java.util.Map<String, Double> snapshotMap = new java.util.HashMap<>();
-        for (Currency currency : this.plugin.getCurrencyRegistry().getCurrencies()) {
-            if (balances.has(currency.getId())) {
-                snapshotMap.put(currency.getId(), balances.get(currency.getId()).getAsDouble());
+        List<BalanceChange> changes = new ArrayList<>();
+        if (data.has("changes")) {
+            for (JsonElement element : data.getAsJsonArray("changes")) {
+                JsonObject json = element.getAsJsonObject();
+                changes.add(new BalanceChange(
+                    json.get("currencyId").getAsString(),
+                    json.get("op").getAsByte(),
+                    json.get("balance").getAsDouble(),
+                    json.get("delta").getAsDouble(),
+                    json.get("version").getAsLong()
+                ));
             }
         }
-        this.plugin.getSnapshotCache().setBalances(userId, snapshotMap);
+        else {
+            // Sent by a node without versioning, absolute values are applied as before.
+            JsonObject balancesJson = data.getAsJsonObject("balances");
+            balancesJson.entrySet().forEach(entry -> changes.add(BalanceChange.unversioned(entry.getKey(), entry.getValue().getAsDouble())));
+        }
 
-        // Fetch user off-thread, then apply to main thread to avoid blocking
-        this.plugin.getUserManager().getOrFetchAsync(userId).thenAccept(user -> {
-            if (user == null) return;
-            this.plugin.runNextTick(() -> {
-                for (Currency currency : this.plugin.getCurrencyRegistry().getCurrencies()) {
-                    if (balances.has(currency.getId())) {
-                        double balance = balances.get(currency.getId()).getAsDouble();
-                        user.getBalance().set(currency, balance); // Bypass balance event call
-                    }
+        Boolean hiddenFromTops = settings != null && settings.has("hiddenFromTops") ? settings.get("hiddenFromTops").getAsBoolean() : null;
+
+        String name = data.has("userName") ? data.get("userName").getAsString() : "";
+        this.applyBalanceRecord(sourceNodeId, new BalanceRecord(userId, name, hiddenFromTops, changes));
+    }
+
+    private void applyBalanceRecord(@NotNull String sourceNodeId, @NotNull BalanceRecord record) {
+        List<BalanceChange> accepted = new ArrayList<>();
+
+        for (BalanceChange change : record.changes()) {
+            if (change.version() != 0L) this.clock.observe(change.version());
+            if (this.plugin.getCurrencyRegistry().getById(change.currencyId()) == null) continue;
+
+            if (this.replication.accept(record.playerId(), sourceNodeId, change)) {
+                accepted.add(change);
+            }
+            else this.discardedChanges.incrementAndGet();
+        }
+
+        if (accepted.isEmpty() && record.hiddenFromTops() == null) return;
+
+        this.applyBalances(record.playerId(), accepted, record.hiddenFromTops());
+    }
+
+    private void applyBalances(@NotNull UUID userId, @NotNull List<BalanceChange> received, @Nullable Boolean hiddenFromTops) {
+        // Deltas can only be applied to a balance kept in memory. For users not loaded here the database row is
+        // authoritative and already includes the delta (or will, once the sender saves it), so it must not be added again.
+        // Their last known snapshot would be stale otherwise, so the delta goes there only.
+        boolean loaded = this.plugin.getUserManager().isLoaded(userId);
+        if (!loaded) {
+            received.forEach(change -> {
+                if (change.operation() == BalanceChange.DELTA) {
+                    this.plugin.getSnapshotCache().addDelta(userId, change.currencyId(), change.delta());
                 }
-                if (settings.has("hiddenFromTops")) {
-                    user.setHiddenFromTops(settings.get("hiddenFromTops").getAsBoolean());
+            });
+        }
+
+        List<BalanceChange> changes = loaded ? received : received.stream().filter(change -> change.operation() != BalanceChange.DELTA).toList();
+        if (changes.isEmpty() && hiddenFromTops == null) return;
+
+        // Update snapshot immediately to keep non-blocking reads consistent
+        changes.forEach(change -> {
+            if (change.operation() != BalanceChange.DELTA && this.plugin.getCurrencyRegistry().getById(change.currencyId()) != null) {
+                this.plugin.getSnapshotCache().setBalance(userId, change.currencyId(), change.balance());
+            }
+        });
+
+        // Fetch user off-thread, then apply to main thread to avoid blocking.
+        // Changes are chained per user, so they are applied in the same order they were accepted.
+        CompletableFuture<CoinsUser> next = this.userChains.compute(userId, (id, tail) -> {
+            CompletableFuture<CoinsUser> previous = tail == null ? this.plugin.getUserManager().getOrFetchAsync(id) : tail;
+            return previous.handle((user, error) -> {
+                if (user != null) {
+                    this.plugin.runNextTick(() -> this.applyChanges(user, changes, hiddenFromTops));
                 }
-                this.plugin.getUserManager().save(user);
+                return user;
             });
         });
+        next.whenComplete((user, error) -> this.userChains.remove(userId, next));
+    }
+
+    private void applyChanges(@NotNull CoinsUser user, @NotNull List<BalanceChange> changes, @Nullable Boolean hiddenFromTops) {
+        for (BalanceChange change : changes) {
+            Currency currency = this.plugin.getCurrencyRegistry().getById(change.currencyId());
+            if (currency == null) continue;
+
+            // Bypass balance event call. Delta is applied atomically, so it is not lost if the balance changes meanwhile.
+            if (change.operation() == BalanceChange.DELTA) {
+                user.getBalance().update(currency, balance -> balance + change.delta());
+            }
+            else user.getBalance().set(currency, change.balance());
+            user.markDirty(currency);
+            this.plugin.getSnapshotCache().setBalance(user.getId(), currency.getId(), user.getBalance(currency));
+        }
+        if (hiddenFromTops != null) {
+            user.setHiddenFromTops(hiddenFromTops);
+        }
+        this.plugin.getUserManager().save(user);
+        this.plugin.getTopManager().ifPresent(topManager -> topManager.updateUser(user));
+    }
+
+    @NotNull
+    public ReplicationState getReplicationState() {
+        return this.replication;
+    }
+
+    /**
+     * @return Amount of incoming balance changes discarded as stale or duplicate.
+     */
+    public long getDiscardedChanges() {
+        return this.discardedChanges.get();
     }
 
     private void applyCurrencyOperation(@NotNull JsonObject data) {
@@ -521,19 +788,19 @@ public class RedisSyncManager {
 
         String currencyId = data.get("currencyId").getAsString();
         JsonObject entriesJson = data.getAsJsonObject("entries");
-        Map<String, TopEntry> entries = new java.util.LinkedHashMap<>();
+        Map<String, TopEntry> entries = new LinkedHashMap<>();
         for (Map.Entry<String, com.google.gson.JsonElement> member : entriesJson.entrySet()) {
             JsonObject obj = member.getValue().getAsJsonObject();
             int position = obj.get("position").getAsInt();
             String name = obj.get("name").getAsString();
-            java.util.UUID playerId = java.util.UUID.fromString(obj.get("playerId").getAsString());
+            UUID playerId = UUID.fromString(obj.get("playerId").getAsString());
             double balance = obj.get("balance").getAsDouble();
             entries.put(member.getKey(), new TopEntry(position, name, playerId, balance));
         }
 
         this.plugin.runNextTick(() -> {
             this.plugin.getTopManager().ifPresent(topManager -> {
-                topManager.applyExternalTopEntries(currencyId, entries);
+                topManager.applyExternalTopEntries(currencyId, entries.values());
                 this.plugin.info("Updated leaderboard for currency: " + currencyId + " (" + entries.size() + " entries)");
             });
         });
@@ -0,0 +1,124 @@
+package su.nightexpress.coinsengine.sync;
+
+import org.jetbrains.annotations.NotNull;
+import su.nightexpress.coinsengine.sync.SyncProtocol.BalanceChange;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Decides which incoming balance changes should be applied, per user and currency.
+ * - SET changes follow last-writer-wins by version, ties are broken by node ID.
+ * - DELTA changes are applied once, and only if they are newer than the last SET and than the last delta received
+ *   from the same node. Deltas from different nodes are all applied, so concurrent spending on two nodes is merged.
+ * - STATE changes (periodic full syncs) only fill balances that have no versioned changes yet.
+ * - Changes with version 0 come from nodes without versioning and are always applied, as before.
+ * - State of users that are not loaded is dropped once they have no changes for a while (see purge).
+ */
+public class ReplicationState {
+
+    private final Map<UUID, Map<String, Entry>> entries;
+    private final Map<UUID, Long>                touched; // Player ID -> time of the last change.
+
+    public ReplicationState() {
+        this.entries = new HashMap<>();
+        this.touched = new HashMap<>();
+    }
+
+    private static class Entry {
+
+        private final Map<String, Long> lastDeltas = new HashMap<>(); // Node ID -> version of its last delta.
+
+        private long   setVersion;
+        private String setNode = "";
+    }
+
+    private static int compare(long version, @NotNull String node, long otherVersion, @NotNull String otherNode) {
+        int compare = Long.compare(version, otherVersion);
+        return compare != 0 ? compare : node.compareTo(otherNode);
+    }
+
+    /**
+     * Checks if the remote change should be applied and remembers it if so.
+     *
+     * @param playerId Player ID.
+     * @param nodeId ID of the node that made the change.
+     * @param change Balance change.
+     * @return True if the change should be applied, false if it is stale or duplicate.
+     */
+    public synchronized boolean accept(@NotNull UUID playerId, @NotNull String nodeId, @NotNull BalanceChange change) {
+        if (change.version() == 0L) return true;
+
+        Map<String, Entry> userEntries = this.entries.get(playerId);
+        Entry entry = userEntries == null ? null : userEntries.get(change.currencyId());
+
+        if (change.operation() == BalanceChange.STATE) {
+            return entry == null;
+        }
+
+        if (entry == null) {
+            entry = this.entries.computeIfAbsent(playerId, k -> new HashMap<>()).computeIfAbsent(change.currencyId(), k -> new Entry());
+        }
+        this.touched.put(playerId, System.currentTimeMillis());
+
+        if (change.operation() == BalanceChange.SET) {
+            if (compare(change.version(), nodeId, entry.setVersion, entry.setNode) <= 0) return false;
+
+            entry.setVersion = change.version();
+            entry.setNode = nodeId;
+            entry.lastDeltas.merge(nodeId, change.version(), Math::max);
+            return true;
+        }
+
+        if (change.version() <= entry.setVersion) return false; // A newer SET already replaced the balance.
+        if (change.version() <= entry.lastDeltas.getOrDefault(nodeId, 0L)) return false; // Already applied.
+
+        entry.lastDeltas.put(nodeId, change.version());
+        return true;
+    }
+
+    /**
+     * Remembers a change made on this node, so older remote changes do not override it.
+     */
+    public synchronized void recordLocal(@NotNull UUID playerId, @NotNull String nodeId, @NotNull BalanceChange change) {
+        if (change.operation() == BalanceChange.STATE) return;
+
+        Entry entry = this.entries.computeIfAbsent(playerId, k -> new HashMap<>()).computeIfAbsent(change.currencyId(), k -> new Entry());
+        this.touched.put(playerId, System.currentTimeMillis());
+
+        if (change.operation() == BalanceChange.SET && compare(change.version(), nodeId, entry.setVersion, entry.setNode) > 0) {
+            entry.setVersion = change.version();
+            entry.setNode = nodeId;
+        }
+    }
+
+    public synchronized void forget(@NotNull UUID playerId) {
+        this.entries.remove(playerId);
+        this.touched.remove(playerId);
+    }
+
+    /**
+     * Drops state of users that had no changes for the given time, except those to keep. Changes of such users that
+     * are still on the way are old enough to be applied in any order, as their balances are read from the database.
+     *
+     * @param maxAge Max. time since the last change, in milliseconds.
+     * @param keep Users whose state must be kept (i.e. loaded users).
+     */
+    public synchronized void purge(long maxAge, @NotNull Predicate<UUID> keep) {
+        long minTime = System.currentTimeMillis() - maxAge;
+
+        this.touched.entrySet().removeIf(entry -> {
+            if (entry.getValue() >= minTime || keep.test(entry.getKey())) return false;
+
+            this.entries.remove(entry.getKey());
+            return true;
+        });
+    }
+
+    public synchronized void clear() {
+        this.entries.clear();
+        this.touched.clear();
+    }
+}
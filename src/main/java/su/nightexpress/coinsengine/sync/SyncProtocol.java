@@ -0,0 +1,190 @@
+package su.nightexpress.coinsengine.sync;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Binary wire format of Redis sync frames.
+ * - Frame: magic byte, protocol version, node ID, record count, records.
+ * - Record: type byte, body length, body. Unknown record types are skipped by their length.
+ * - Balance record: player ID, name, flags, and only the currencies that changed. Since version 2 every change has
+ *   an operation, the new balance, the delta and a hybrid logical clock version, see {@link ReplicationState}.
+ * - Message record: any other message type with its data as compact JSON.
+ * Legacy messages are plain JSON objects and always start with '{', which never collides with the magic byte.
+ */
+public final class SyncProtocol {
+
+    public static final byte MAGIC   = (byte) 0xCE;
+    public static final byte VERSION = 2;
+
+    public static final byte RECORD_BALANCE = 1;
+    public static final byte RECORD_MESSAGE = 2;
+
+    private static final int FLAG_HAS_SETTINGS     = 1;
+    private static final int FLAG_HIDDEN_FROM_TOPS = 1 << 1;
+
+    private SyncProtocol() {}
+
+    public record BalanceRecord(@NotNull UUID playerId, @NotNull String name, @Nullable Boolean hiddenFromTops, @NotNull Collection<BalanceChange> changes) {}
+
+    /**
+     * @param operation One of {@link #STATE}, {@link #SET} or {@link #DELTA}.
+     * @param balance Balance after the change on the sending node.
+     * @param delta Amount added (or removed, if negative) by the change. Used for {@link #DELTA} only.
+     * @param version Hybrid logical clock version, or 0 if unknown.
+     */
+    public record BalanceChange(@NotNull String currencyId, byte operation, double balance, double delta, long version) {
+
+        /** Periodic full balance, not caused by an operation. */
+        public static final byte STATE = 0;
+        /** Balance was set to the exact value. */
+        public static final byte SET   = 1;
+        /** Balance was increased or decreased by the delta. */
+        public static final byte DELTA = 2;
+
+        @NotNull
+        public static BalanceChange unversioned(@NotNull String currencyId, double balance) {
+            return new BalanceChange(currencyId, SET, balance, 0D, 0L);
+        }
+    }
+
+    public record MessageRecord(@NotNull String type, @NotNull String json) {}
+
+    public record Frame(int version, @NotNull String nodeId, @NotNull List<BalanceRecord> balances, @NotNull List<MessageRecord> messages) {}
+
+    public static boolean isLegacy(byte[] payload) {
+        return payload.length > 0 && payload[0] == '{';
+    }
+
+    public static boolean isFrame(byte[] payload) {
+        return payload.length > 1 && payload[0] == MAGIC;
+    }
+
+    public static byte[] encode(@NotNull String nodeId, @NotNull Collection<BalanceRecord> balances, @NotNull Collection<MessageRecord> messages) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + balances.size() * 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeUTF(nodeId);
+        out.writeInt(balances.size() + messages.size());
+
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(128);
+        DataOutputStream record = new DataOutputStream(recordBytes);
+
+        for (BalanceRecord balance : balances) {
+            recordBytes.reset();
+            writeBalance(record, balance);
+            writeRecord(out, RECORD_BALANCE, recordBytes);
+        }
+
+        for (MessageRecord message : messages) {
+            recordBytes.reset();
+            record.writeUTF(message.type());
+            writeBytes(record, message.json().getBytes(StandardCharsets.UTF_8));
+            writeRecord(out, RECORD_MESSAGE, recordBytes);
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    @NotNull
+    public static Frame decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+
+        if (in.readByte() != MAGIC) throw new IOException("Not a sync frame.");
+
+        int version = in.readUnsignedByte();
+        if (version > VERSION) throw new IOException("Unsupported sync protocol version: " + version);
+
+        String nodeId = in.readUTF();
+        int count = in.readInt();
+
+        List<BalanceRecord> balances = new ArrayList<>();
+        List<MessageRecord> messages = new ArrayList<>();
+
+        for (int index = 0; index < count; index++) {
+            byte type = in.readByte();
+            byte[] body = readBytes(in);
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(body));
+
+            switch (type) {
+                case RECORD_BALANCE -> balances.add(readBalance(record, version));
+                case RECORD_MESSAGE -> messages.add(new MessageRecord(record.readUTF(), new String(readBytes(record), StandardCharsets.UTF_8)));
+                default -> {} // Record added in a newer version, already skipped by its length.
+            }
+        }
+
+        return new Frame(version, nodeId, balances, messages);
+    }
+
+    private static void writeRecord(@NotNull DataOutputStream out, byte type, @NotNull ByteArrayOutputStream body) throws IOException {
+        out.writeByte(type);
+        out.writeInt(body.size());
+        body.writeTo(out);
+    }
+
+    private static void writeBalance(@NotNull DataOutputStream out, @NotNull BalanceRecord balance) throws IOException {
+        int flags = 0;
+        if (balance.hiddenFromTops() != null) {
+            flags |= FLAG_HAS_SETTINGS;
+            if (balance.hiddenFromTops()) flags |= FLAG_HIDDEN_FROM_TOPS;
+        }
+
+        out.writeLong(balance.playerId().getMostSignificantBits());
+        out.writeLong(balance.playerId().getLeastSignificantBits());
+        out.writeUTF(balance.name());
+        out.writeByte(flags);
+        out.writeShort(balance.changes().size());
+
+        for (BalanceChange change : balance.changes()) {
+            out.writeUTF(change.currencyId());
+            out.writeByte(change.operation());
+            out.writeDouble(change.balance());
+            out.writeDouble(change.delta());
+            out.writeLong(change.version());
+        }
+    }
+
+    @NotNull
+    private static BalanceRecord readBalance(@NotNull DataInputStream in, int version) throws IOException {
+        UUID playerId = new UUID(in.readLong(), in.readLong());
+        String name = in.readUTF();
+        int flags = in.readUnsignedByte();
+        int count = in.readUnsignedShort();
+
+        List<BalanceChange> changes = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            String currencyId = in.readUTF();
+
+            if (version < 2) {
+                changes.add(BalanceChange.unversioned(currencyId, in.readDouble()));
+            }
+            else {
+                changes.add(new BalanceChange(currencyId, in.readByte(), in.readDouble(), in.readDouble(), in.readLong()));
+            }
+        }
+
+        Boolean hiddenFromTops = (flags & FLAG_HAS_SETTINGS) != 0 ? (flags & FLAG_HIDDEN_FROM_TOPS) != 0 : null;
+        return new BalanceRecord(playerId, name, hiddenFromTops, changes);
+    }
+
+    private static void writeBytes(@NotNull DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(@NotNull DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) throw new IOException("Malformed sync frame.");
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
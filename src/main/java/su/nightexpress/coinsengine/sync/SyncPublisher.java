@@ -0,0 +1,381 @@
+package su.nightexpress.coinsengine.sync;
+
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+import su.nightexpress.coinsengine.CoinsEnginePlugin;
+import su.nightexpress.coinsengine.data.impl.CoinsUser;
+import su.nightexpress.coinsengine.sync.SyncProtocol.BalanceChange;
+import su.nightexpress.coinsengine.sync.SyncProtocol.BalanceRecord;
+import su.nightexpress.coinsengine.sync.SyncProtocol.MessageRecord;
+import su.nightexpress.nightcore.lib.redis.jedis.Jedis;
+import su.nightexpress.nightcore.lib.redis.jedis.JedisPool;
+import su.nightexpress.nightcore.lib.redis.jedis.Pipeline;
+import su.nightexpress.nightcore.lib.redis.jedis.Protocol;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single publisher thread for Redis sync messages.
+ * - Producers only put messages in a bounded queue, no task is scheduled and no connection is borrowed per message.
+ * - Balance updates of the same user are merged until the next flush.
+ * - Every batch window all queued messages are packed into frames and pipelined over one connection.
+ * - When the queue is full, async producers wait a little (backpressure), the main thread never waits.
+ *   Messages that still don't fit are dropped and counted.
+ * - Batches of balance records (bulk operations) are never merged or split, each one is sent as a single frame.
+ *   Balance updates and batches are sent in the order they were queued, so receivers never see an older delta after
+ *   a newer one. Batches are limited by the queue size too.
+ */
+public class SyncPublisher {
+
+    private static final int MAX_FRAME_RECORDS = 512;
+
+    private final CoinsEnginePlugin plugin;
+    private final JedisPool         pool;
+    private final byte[]            channel;
+    private final String            nodeId;
+    private final boolean           binary;
+    private final long              batchWindowNanos;
+    private final int               capacity;
+    private final long              offerTimeout;
+
+    private final BlockingQueue<MessageRecord> queue;
+    private final Map<UUID, PendingBalance>    pendingBalances;
+    private final Queue<List<BalanceRecord>>   batches;
+    private final Object                       balanceLock; // Keeps pending balances and batches in queue order.
+    private final Thread                       thread;
+
+    private final AtomicLong framesPublished;
+    private final AtomicLong recordsPublished;
+    private final AtomicLong dropped;
+    private final AtomicLong failed;
+
+    private volatile boolean running;
+    private volatile int     maxQueueDepth;
+
+    private Jedis connection; // Used by the publisher thread only.
+    private long  reportedDrops;
+
+    public SyncPublisher(@NotNull CoinsEnginePlugin plugin, @NotNull JedisPool pool, @NotNull String channel, @NotNull String nodeId,
+                         boolean binary, long batchWindow, int capacity, long offerTimeout) {
+        this.plugin = plugin;
+        this.pool = pool;
+        this.channel = channel.getBytes(StandardCharsets.UTF_8);
+        this.nodeId = nodeId;
+        this.binary = binary;
+        this.batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, batchWindow));
+        this.capacity = Math.max(1, capacity);
+        this.offerTimeout = Math.max(0L, offerTimeout);
+
+        this.queue = new ArrayBlockingQueue<>(this.capacity);
+        this.pendingBalances = new LinkedHashMap<>();
+        this.batches = new ArrayDeque<>();
+        this.balanceLock = new Object();
+        this.thread = new Thread(this::run, "CoinsEngine-RedisPublisher");
+        this.thread.setDaemon(true);
+
+        this.framesPublished = new AtomicLong();
+        this.recordsPublished = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.failed = new AtomicLong();
+    }
+
+    private static class PendingBalance {
+
+        private final Map<String, BalanceChange> changes = new LinkedHashMap<>();
+
+        private String  name;
+        private Boolean hiddenFromTops;
+    }
+
+    public void start() {
+        this.running = true;
+        this.thread.start();
+    }
+
+    public void shutdown() {
+        this.running = false;
+        LockSupport.unpark(this.thread);
+
+        try {
+            this.thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean enqueue(@NotNull MessageRecord message) {
+        boolean added;
+        if (this.offerTimeout <= 0L || Bukkit.isPrimaryThread()) {
+            added = this.queue.offer(message);
+        }
+        else {
+            try {
+                added = this.queue.offer(message, this.offerTimeout, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                added = false;
+            }
+        }
+
+        if (!added) {
+            this.dropped.incrementAndGet();
+            return false;
+        }
+
+        int depth = this.queue.size();
+        if (depth > this.maxQueueDepth) this.maxQueueDepth = depth;
+        return true;
+    }
+
+    /**
+     * Queues balance changes of the user. Changes of the same currency made before the next flush are merged:
+     * deltas are summed, a set replaces everything before it, and a full state never replaces an operation.
+     */
+    public boolean enqueueBalance(@NotNull CoinsUser user, @NotNull Collection<BalanceChange> changes) {
+        boolean hiddenFromTops = user.isHiddenFromTops();
+
+        synchronized (this.balanceLock) {
+            if (this.pendingBalances.size() >= this.capacity && !this.pendingBalances.containsKey(user.getId())) {
+                this.dropped.incrementAndGet();
+                return false;
+            }
+
+            this.pendingBalances.compute(user.getId(), (id, old) -> {
+                PendingBalance pending = old == null ? new PendingBalance() : old;
+
+                pending.name = user.getName();
+                pending.hiddenFromTops = hiddenFromTops;
+                changes.forEach(change -> pending.changes.merge(change.currencyId(), change, SyncPublisher::merge));
+                return pending;
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Queues balance records of a bulk operation to be sent together in one frame. Balance updates queued before
+     * are moved ahead of the batch, so they are sent first.
+     */
+    public boolean enqueueBatch(@NotNull List<BalanceRecord> records) {
+        if (records.isEmpty()) return true;
+
+        synchronized (this.balanceLock) {
+            if (this.batches.size() >= this.capacity) {
+                this.dropped.addAndGet(records.size());
+                return false;
+            }
+
+            List<BalanceRecord> pending = this.drainPendingBalances();
+            if (!pending.isEmpty()) this.batches.add(pending);
+
+            this.batches.add(records);
+        }
+        return true;
+    }
+
+    @NotNull
+    private List<BalanceRecord> drainPendingBalances() {
+        List<BalanceRecord> balances = new ArrayList<>(this.pendingBalances.size());
+        this.pendingBalances.forEach((playerId, pending) -> {
+            balances.add(new BalanceRecord(playerId, pending.name, pending.hiddenFromTops, pending.changes.values()));
+        });
+        this.pendingBalances.clear();
+        return balances;
+    }
+
+    @NotNull
+    private static BalanceChange merge(@NotNull BalanceChange queued, @NotNull BalanceChange change) {
+        return switch (change.operation()) {
+            case BalanceChange.DELTA -> switch (queued.operation()) {
+                case BalanceChange.SET -> new BalanceChange(change.currencyId(), BalanceChange.SET, change.balance(), 0D, change.version());
+                case BalanceChange.DELTA -> new BalanceChange(change.currencyId(), BalanceChange.DELTA, change.balance(), queued.delta() + change.delta(), change.version());
+                default -> change;
+            };
+            case BalanceChange.STATE -> queued.operation() == BalanceChange.STATE ? change : queued;
+            default -> change;
+        };
+    }
+
+    private void run() {
+        while (this.running) {
+            LockSupport.parkNanos(this, this.batchWindowNanos);
+            this.flush();
+        }
+
+        this.flush(); // Send whatever was queued during the last window.
+        this.closeConnection();
+    }
+
+    private void flush() {
+        // Batches are always older than the pending balances, take both at once so nothing can get in between.
+        List<List<BalanceRecord>> batches;
+        List<BalanceRecord> balances;
+        synchronized (this.balanceLock) {
+            batches = new ArrayList<>(this.batches);
+            this.batches.clear();
+            balances = this.drainPendingBalances();
+        }
+
+        this.flushBatches(batches);
+        this.reportDrops();
+        if (this.queue.isEmpty() && balances.isEmpty()) return;
+
+        List<MessageRecord> messages = new ArrayList<>(this.queue.size());
+        this.queue.drainTo(messages);
+
+        List<byte[]> payloads;
+        try {
+            payloads = this.binary ? this.createFrames(balances, messages) : this.createLegacyPayloads(messages);
+        }
+        catch (Exception exception) {
+            this.plugin.error("Could not encode Redis sync messages: " + exception.getMessage());
+            this.failed.addAndGet(balances.size() + messages.size());
+            return;
+        }
+
+        int records = balances.size() + messages.size();
+
+        // One retry with a fresh connection, in case the old one was closed by the server.
+        if (!this.send(payloads) && !this.send(payloads)) {
+            this.failed.addAndGet(records);
+            return;
+        }
+
+        this.framesPublished.addAndGet(payloads.size());
+        this.recordsPublished.addAndGet(records);
+    }
+
+    private void reportDrops() {
+        long drops = this.dropped.get();
+        if (drops != this.reportedDrops) {
+            this.plugin.warn("Redis sync queue overflow: " + (drops - this.reportedDrops) + " message(s) dropped. Consider increasing the queue size.");
+            this.reportedDrops = drops;
+        }
+    }
+
+    private void flushBatches(@NotNull List<List<BalanceRecord>> batches) {
+        for (List<BalanceRecord> batch : batches) {
+            byte[] frame;
+            try {
+                frame = SyncProtocol.encode(this.nodeId, batch, Collections.emptyList());
+            }
+            catch (Exception exception) {
+                this.plugin.error("Could not encode Redis sync batch: " + exception.getMessage());
+                this.failed.addAndGet(batch.size());
+                continue;
+            }
+
+            if (!this.send(List.of(frame)) && !this.send(List.of(frame))) {
+                this.failed.addAndGet(batch.size());
+                continue;
+            }
+
+            this.framesPublished.incrementAndGet();
+            this.recordsPublished.addAndGet(batch.size());
+        }
+    }
+
+    private boolean send(@NotNull List<byte[]> payloads) {
+        try {
+            Jedis jedis = this.getConnection();
+            try (Pipeline pipeline = jedis.pipelined()) {
+                for (byte[] payload : payloads) {
+                    pipeline.sendCommand(Protocol.Command.PUBLISH, this.channel, payload);
+                }
+                pipeline.sync();
+            }
+            return true;
+        }
+        catch (Exception exception) {
+            this.plugin.warn("Redis publish failed: " + exception.getMessage());
+            this.closeConnection();
+            return false;
+        }
+    }
+
+    @NotNull
+    private List<byte[]> createFrames(@NotNull List<BalanceRecord> balances, @NotNull List<MessageRecord> messages) throws Exception {
+        List<byte[]> frames = new ArrayList<>();
+        int total = balances.size() + messages.size();
+
+        for (int from = 0; from < total; from += MAX_FRAME_RECORDS) {
+            int to = from + MAX_FRAME_RECORDS;
+
+            List<BalanceRecord> frameBalances = balances.subList(Math.min(from, balances.size()), Math.min(to, balances.size()));
+            List<MessageRecord> frameMessages = messages.subList(
+                Math.min(Math.max(0, from - balances.size()), messages.size()),
+                Math.min(Math.max(0, to - balances.size()), messages.size())
+            );
+
+            frames.add(SyncProtocol.encode(this.nodeId, frameBalances, frameMessages));
+        }
+
+        return frames;
+    }
+
+    @NotNull
+    private List<byte[]> createLegacyPayloads(@NotNull List<MessageRecord> messages) {
+        List<byte[]> payloads = new ArrayList<>(messages.size());
+        messages.forEach(message -> payloads.add(message.json().getBytes(StandardCharsets.UTF_8)));
+        return payloads;
+    }
+
+    @NotNull
+    private Jedis getConnection() {
+        if (this.connection == null || !this.connection.isConnected()) {
+            this.closeConnection();
+            this.connection = this.pool.getResource();
+        }
+        return this.connection;
+    }
+
+    private void closeConnection() {
+        if (this.connection == null) return;
+
+        try {
+            this.connection.close();
+        }
+        catch (Exception ignored) {}
+        this.connection = null;
+    }
+
+    public int getQueueDepth() {
+        synchronized (this.balanceLock) {
+            return this.queue.size() + this.pendingBalances.size() + this.batches.size();
+        }
+    }
+
+    public int getMaxQueueDepth() {
+        return this.maxQueueDepth;
+    }
+
+    public long getFramesPublished() {
+        return this.framesPublished.get();
+    }
+
+    public long getRecordsPublished() {
+        return this.recordsPublished.get();
+    }
+
+    /**
+     * @return Amount of messages rejected because the queue was full.
+     */
+    public long getDropped() {
+        return this.dropped.get();
+    }
+
+    /**
+     * @return Amount of messages lost because they could not be encoded or sent.
+     */
+    public long getFailed() {
+        return this.failed.get();
+    }
+}
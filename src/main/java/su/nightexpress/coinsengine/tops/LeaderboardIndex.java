@@ -0,0 +1,244 @@
+package su.nightexpress.coinsengine.tops;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import su.nightexpress.coinsengine.util.CompensatedSum;
+import su.nightexpress.nightcore.util.LowerCase;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Order-statistic treap of user balances for a single currency.
+ * - Entries are ordered by balance (descending), then by player ID, so positions are stable for equal balances.
+ * - Updates, rank lookups, position lookups and range slices are O(log n) in expectation.
+ * - Every node keeps size of its subtree for position lookups.
+ * - Total balance is kept as a compensated running sum, so reading it is O(1) and lock-free.
+ */
+public class LeaderboardIndex {
+
+    private final Map<UUID, Node>   nodesById;
+    private final Map<String, Node> nodesByName;
+    private final CompensatedSum    total;
+
+    private Node root;
+
+    public LeaderboardIndex() {
+        this.nodesById = new HashMap<>();
+        this.nodesByName = new HashMap<>();
+        this.total = new CompensatedSum();
+    }
+
+    private static final class Node {
+
+        private final UUID   playerId;
+        private final String name;
+        private final double balance;
+        private final int    priority;
+
+        private Node left;
+        private Node right;
+        private int  size;
+
+        private Node(@NotNull UUID playerId, @NotNull String name, double balance) {
+            this.playerId = playerId;
+            this.name = name;
+            this.balance = balance;
+            this.priority = ThreadLocalRandom.current().nextInt();
+            this.size = 1;
+        }
+
+        private void recalculate() {
+            this.size = 1 + size(this.left) + size(this.right);
+        }
+    }
+
+    private static int size(@Nullable Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int compare(@NotNull Node first, @NotNull Node second) {
+        int compare = Double.compare(second.balance, first.balance);
+        return compare != 0 ? compare : first.playerId.compareTo(second.playerId);
+    }
+
+    /**
+     * Splits subtree into nodes ordered before the given key and the rest.
+     *
+     * @param inclusive Whether the key node itself should go in the left part.
+     */
+    @NotNull
+    private static Node[] split(@Nullable Node node, @NotNull Node key, boolean inclusive) {
+        if (node == null) return new Node[]{null, null};
+
+        int compare = compare(node, key);
+        if (compare < 0 || (inclusive && compare == 0)) {
+            Node[] parts = split(node.right, key, inclusive);
+            node.right = parts[0];
+            node.recalculate();
+            parts[0] = node;
+            return parts;
+        }
+
+        Node[] parts = split(node.left, key, inclusive);
+        node.left = parts[1];
+        node.recalculate();
+        parts[1] = node;
+        return parts;
+    }
+
+    @Nullable
+    private static Node merge(@Nullable Node left, @Nullable Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.recalculate();
+            return left;
+        }
+
+        right.left = merge(left, right.left);
+        right.recalculate();
+        return right;
+    }
+
+    public synchronized void update(@NotNull UUID playerId, @NotNull String name, double balance) {
+        this.remove(playerId);
+
+        Node node = new Node(playerId, name, balance);
+        Node[] parts = split(this.root, node, false);
+        this.root = merge(merge(parts[0], node), parts[1]);
+
+        this.nodesById.put(playerId, node);
+        this.nodesByName.put(LowerCase.INTERNAL.apply(name), node);
+        this.total.add(balance);
+    }
+
+    public synchronized void remove(@NotNull UUID playerId) {
+        Node node = this.nodesById.remove(playerId);
+        if (node == null) return;
+
+        this.nodesByName.remove(LowerCase.INTERNAL.apply(node.name), node);
+
+        Node[] left = split(this.root, node, false);
+        Node[] right = split(left[1], node, true);
+        this.root = merge(left[0], right[1]);
+
+        this.total.add(-node.balance);
+    }
+
+    public synchronized void clear() {
+        this.nodesById.clear();
+        this.nodesByName.clear();
+        this.root = null;
+        this.total.reset(0D);
+    }
+
+    public synchronized int size() {
+        return size(this.root);
+    }
+
+    public double getTotal() {
+        return this.total.get();
+    }
+
+    /**
+     * @param playerId Player ID.
+     * @return Player's leaderboard position starting from 1, or 0 if player is not present.
+     */
+    public synchronized int getRank(@NotNull UUID playerId) {
+        Node node = this.nodesById.get(playerId);
+        return node == null ? 0 : this.rankOf(node);
+    }
+
+    private int rankOf(@NotNull Node node) {
+        int rank = 0;
+        Node current = this.root;
+
+        while (current != null) {
+            int compare = compare(node, current);
+            if (compare < 0) {
+                current = current.left;
+            }
+            else {
+                rank += size(current.left) + 1;
+                if (compare == 0) return rank;
+                current = current.right;
+            }
+        }
+
+        return 0;
+    }
+
+    @Nullable
+    public synchronized TopEntry getEntry(int position) {
+        if (position < 1 || position > size(this.root)) return null;
+
+        int index = position;
+        Node current = this.root;
+
+        while (current != null) {
+            int leftSize = size(current.left);
+            if (index <= leftSize) {
+                current = current.left;
+            }
+            else if (index == leftSize + 1) {
+                return createEntry(current, position);
+            }
+            else {
+                index -= leftSize + 1;
+                current = current.right;
+            }
+        }
+
+        return null;
+    }
+
+    @Nullable
+    public synchronized TopEntry getEntry(@NotNull String name) {
+        Node node = this.nodesByName.get(LowerCase.INTERNAL.apply(name));
+        return node == null ? null : createEntry(node, this.rankOf(node));
+    }
+
+    /**
+     * @param from First position to include, starting from 1.
+     * @param count Max. amount of entries.
+     * @return Entries in order of their positions.
+     */
+    @NotNull
+    public synchronized List<TopEntry> getRange(int from, int count) {
+        int start = Math.max(1, from);
+        int end = (int) Math.min((long) start + count - 1, size(this.root));
+        if (end < start) return new ArrayList<>();
+
+        List<TopEntry> entries = new ArrayList<>(end - start + 1);
+        collect(this.root, 0, start, end, entries);
+        return entries;
+    }
+
+    private static void collect(@Nullable Node node, int offset, int from, int to, @NotNull List<TopEntry> entries) {
+        if (node == null) return;
+
+        int position = offset + size(node.left) + 1;
+
+        if (from < position) collect(node.left, offset, from, to, entries);
+        if (position >= from && position <= to) entries.add(createEntry(node, position));
+        if (to > position) collect(node.right, position, from, to, entries);
+    }
+
+    /**
+     * @param depth Max. amount of top entries to include.
+     * @return Immutable snapshot of top entries and total balance.
+     */
+    @NotNull
+    public synchronized LeaderboardSnapshot createSnapshot(int depth) {
+        List<TopEntry> entries = this.getRange(1, depth);
+        return LeaderboardSnapshot.of(entries, this.getTotal());
+    }
+
+    @NotNull
+    private static TopEntry createEntry(@NotNull Node node, int position) {
+        return new TopEntry(position, node.name, node.playerId, node.balance);
+    }
+}
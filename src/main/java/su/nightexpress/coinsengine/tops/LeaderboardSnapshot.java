@@ -0,0 +1,101 @@
+package su.nightexpress.coinsengine.tops;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import su.nightexpress.nightcore.util.LowerCase;
+
+import java.util.*;
+
+/**
+ * Immutable leaderboard state of a single currency. Snapshots are never changed after creation, so they can be read
+ * from any thread without locks, and replaced as a whole when a leaderboard is updated.
+ */
+public final class LeaderboardSnapshot {
+
+    public static final LeaderboardSnapshot EMPTY = new LeaderboardSnapshot(new TopEntry[0], 0D);
+
+    private final TopEntry[]           entries;
+    private final Map<String, Integer> rankByName;
+    private final Map<UUID, Integer>   rankById;
+    private final double               total;
+
+    private final List<TopEntry> view;
+
+    /**
+     * @param entries Entries sorted by position, starting from 1. The array must not be changed afterwards.
+     * @param total Total balance of all users (not only those in the entries).
+     */
+    public LeaderboardSnapshot(@NotNull TopEntry[] entries, double total) {
+        this.entries = entries;
+        this.total = total;
+        this.rankByName = new HashMap<>(entries.length * 2);
+        this.rankById = new HashMap<>(entries.length * 2);
+
+        for (int index = 0; index < entries.length; index++) {
+            this.rankByName.put(LowerCase.INTERNAL.apply(entries[index].getName()), index + 1);
+            this.rankById.put(entries[index].getPlayerId(), index + 1);
+        }
+
+        this.view = Collections.unmodifiableList(Arrays.asList(entries));
+    }
+
+    @NotNull
+    public static LeaderboardSnapshot of(@NotNull Collection<TopEntry> entries, double total) {
+        return new LeaderboardSnapshot(entries.toArray(new TopEntry[0]), total);
+    }
+
+    public int size() {
+        return this.entries.length;
+    }
+
+    public double getTotal() {
+        return this.total;
+    }
+
+    /**
+     * @return Read-only list view of the entries. No copy is made.
+     */
+    @NotNull
+    public List<TopEntry> getEntries() {
+        return this.view;
+    }
+
+    @Nullable
+    public TopEntry getEntry(int position) {
+        return position >= 1 && position <= this.entries.length ? this.entries[position - 1] : null;
+    }
+
+    @Nullable
+    public TopEntry getEntry(@NotNull String name) {
+        Integer rank = this.rankByName.get(LowerCase.INTERNAL.apply(name));
+        return rank == null ? null : this.entries[rank - 1];
+    }
+
+    /**
+     * @param playerId Player ID.
+     * @return Player's position starting from 1, or 0 if player is not in the snapshot.
+     */
+    public int getRank(@NotNull UUID playerId) {
+        return this.rankById.getOrDefault(playerId, 0);
+    }
+
+    /**
+     * @param page Page number starting from 1.
+     * @param size Entries per page.
+     * @return Read-only view of the page entries. No copy is made.
+     */
+    @NotNull
+    public List<TopEntry> getPage(int page, int size) {
+        if (page < 1 || size < 1) return Collections.emptyList();
+
+        long from = (long) (page - 1) * size;
+        if (from >= this.entries.length) return Collections.emptyList();
+
+        int to = (int) Math.min(from + size, this.entries.length);
+        return this.view.subList((int) from, to);
+    }
+
+    public int getPages(int size) {
+        return size < 1 ? 0 : (this.entries.length + size - 1) / size;
+    }
+}
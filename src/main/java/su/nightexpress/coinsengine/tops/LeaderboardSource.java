@@ -0,0 +1,12 @@
+package su.nightexpress.coinsengine.tops;
+
+public enum LeaderboardSource {
+    /**
+     * Leaderboards of all users are kept in memory and updated on every balance change.
+     */
+    INDEX,
+    /**
+     * Only top entries are periodically selected from the database.
+     */
+    DATABASE
+}
@@ -13,15 +13,13 @@ public class TopEntry {
     private final UUID playerId;
     private final double balance;
 
-    private final CachedProfile profile;
+    private volatile CachedProfile profile;
 
     public TopEntry(int position, @NotNull String name, @NotNull UUID playerId, double balance) {
         this.position = position;
         this.name = name;
         this.playerId = playerId;
         this.balance = balance;
-
-        this.profile = PlayerProfiles.createProfile(this.playerId, name.length() > 16 ? name.substring(0, 16) : name);
     }
 
     public int getPosition() {
@@ -44,6 +42,10 @@ public class TopEntry {
 
     @NotNull
     public CachedProfile getProfile() {
+        // Created lazily, as most entries are never displayed with a head.
+        if (this.profile == null) {
+            this.profile = PlayerProfiles.createProfile(this.playerId, this.name.length() > 16 ? this.name.substring(0, 16) : this.name);
+        }
         return this.profile;
     }
 }
@@ -15,27 +15,37 @@ import su.nightexpress.coinsengine.currency.CurrencyRegistry;
 import su.nightexpress.coinsengine.data.impl.CoinsUser;
 import su.nightexpress.coinsengine.tops.command.TopCommandProvider;
 import su.nightexpress.coinsengine.tops.menu.TopMenu;
+import su.nightexpress.coinsengine.util.CompensatedSum;
 import su.nightexpress.nightcore.manager.AbstractManager;
-import su.nightexpress.nightcore.util.Lists;
-import su.nightexpress.nightcore.util.LowerCase;
 import su.nightexpress.nightcore.util.NumberUtil;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class TopManager extends AbstractManager<CoinsEnginePlugin> {
 
     private final CurrencyRegistry currencyRegistry;
 
-    private final Map<String, Map<String, TopEntry>> topEntries;
+    private final LeaderboardSource                source;
+    private final Map<String, LeaderboardIndex>    indexes; // Only for the INDEX source.
+    private final Map<String, LeaderboardSnapshot> snapshots;
+    private final Set<String>                      changedIndexes;
+    private final Map<String, CompensatedSum>      totals; // Only for the DATABASE source, INDEX keeps own totals.
+    private final Map<UUID, CoinsUser>             buildUpdates; // Users changed while indexes are being rebuilt.
+
+    private volatile boolean building;
 
     private TopMenu topMenu;
 
     public TopManager(@NotNull CoinsEnginePlugin plugin, @NotNull CurrencyRegistry currencyRegistry) {
         super(plugin);
         this.currencyRegistry = currencyRegistry;
-        this.topEntries = new ConcurrentHashMap<>();
+        this.source = Config.TOPS_SOURCE.get();
+        this.indexes = new ConcurrentHashMap<>();
+        this.snapshots = new ConcurrentHashMap<>();
+        this.changedIndexes = ConcurrentHashMap.newKeySet();
+        this.totals = new ConcurrentHashMap<>();
+        this.buildUpdates = new ConcurrentHashMap<>();
     }
 
     @Override
@@ -48,43 +58,167 @@ public class TopManager extends AbstractManager<CoinsEnginePlugin> {
 
         this.addListener(new TopsListener(this.plugin, this));
 
-        this.addAsyncTask(this::updateBalances, Config.TOPS_UPDATE_INTERVAL.get());
+        this.plugin.getFoliaScheduler().runAsync(this::updateBalances);
+
+        int rebuildInterval = this.source == LeaderboardSource.DATABASE ? Config.TOPS_DATABASE_REFRESH_INTERVAL.get() : Config.TOPS_UPDATE_INTERVAL.get();
+        if (rebuildInterval > 0) {
+            this.addAsyncTask(this::updateBalances, rebuildInterval);
+        }
+
+        if (this.source == LeaderboardSource.INDEX) {
+            this.addAsyncTask(this::publishChangedSnapshots, 20L);
+        }
     }
 
     @Override
     protected void onShutdown() {
-        this.topEntries.clear();
+        this.indexes.clear();
+        this.snapshots.clear();
+        this.changedIndexes.clear();
+        this.totals.clear();
     }
 
+    @NotNull
+    public LeaderboardSource getSource() {
+        return this.source;
+    }
+
+    /**
+     * Builds leaderboards of all currencies from the database. Current leaderboards stay available until new ones are
+     * ready.
+     */
     public void updateBalances() {
-        this.topEntries.clear();
+        if (this.source == LeaderboardSource.DATABASE) {
+            this.selectTopEntries();
+        }
+        else {
+            this.buildIndexes();
+        }
+    }
 
-        List<CoinsUser> users = this.plugin.getDataHandler().getUsers();
+    private void selectTopEntries() {
+        int depth = getDepth();
 
-        users.removeIf(user -> {
-            Player player = user.getPlayer();
-            if (player != null) {
-                this.hideFromTops(player);
-            }
-            return user.isHiddenFromTops();
+        this.currencyRegistry.getCurrencies().forEach(currency -> {
+            List<TopEntry> entries = this.plugin.getDataHandler().selectTopEntries(currency, depth);
+            double total = this.plugin.getDataHandler().selectTotalBalance(currency);
+
+            this.snapshots.put(currency.getId(), LeaderboardSnapshot.of(entries, total));
+            this.totals.computeIfAbsent(currency.getId(), k -> new CompensatedSum()).reset(total);
         });
+    }
 
-        this.currencyRegistry.getCurrencies().forEach(currency -> {
-            AtomicInteger counter = new AtomicInteger(0);
-            Map<String, TopEntry> entries = new LinkedHashMap<>();
+    private void buildIndexes() {
+        Collection<Currency> currencies = this.currencyRegistry.getCurrencies();
+        Map<String, LeaderboardIndex> built = new HashMap<>();
+        currencies.forEach(currency -> built.put(currency.getId(), new LeaderboardIndex()));
+
+        this.buildUpdates.clear();
+        this.building = true;
+        try {
+            this.plugin.getDataHandler().readBalanceRows(row -> {
+                if (row.hiddenFromTops()) return;
 
-            users.stream().sorted(Comparator.comparingDouble((CoinsUser user) -> user.getBalance(currency)).reversed()).forEach(user -> {
-                entries.put(LowerCase.INTERNAL.apply(user.getName()), new TopEntry(counter.incrementAndGet(), user.getName(), user.getId(), user.getBalance(currency)));
+                for (Currency currency : currencies) {
+                    built.get(currency.getId()).update(row.playerId(), row.name(), row.balance().get(currency));
+                }
             });
 
-            this.topEntries.put(currency.getId(), entries);
-        });
+            this.indexes.putAll(built);
+        }
+        finally {
+            this.building = false;
+        }
+
+        // Rows could be read before users were changed (sync, bulk operations, migrations), apply their current
+        // balances to the new indexes. Loaded users are applied too, in case they changed without an update.
+        this.buildUpdates.values().forEach(this::updateUser);
+        this.buildUpdates.clear();
+        this.plugin.getUserManager().getLoaded().forEach(this::updateUser);
+
+        this.changedIndexes.addAll(built.keySet());
+        this.publishChangedSnapshots();
+    }
+
+    private static int getDepth() {
+        return Math.max(1, Config.TOPS_DEPTH.get());
+    }
+
+    /**
+     * Replaces snapshots of changed indexes with new ones. Readers keep using previous snapshots until the swap.
+     */
+    private void publishChangedSnapshots() {
+        if (this.changedIndexes.isEmpty()) return;
+
+        int depth = getDepth();
+        Iterator<String> iterator = this.changedIndexes.iterator();
+        while (iterator.hasNext()) {
+            String currencyId = iterator.next();
+            iterator.remove();
+
+            LeaderboardIndex index = this.indexes.get(currencyId);
+            if (index == null) continue;
+
+            this.snapshots.put(currencyId, index.createSnapshot(depth));
+        }
+    }
+
+    @NotNull
+    private LeaderboardSnapshot getSnapshot(@NotNull Currency currency) {
+        return this.snapshots.getOrDefault(currency.getId(), LeaderboardSnapshot.EMPTY);
+    }
+
+    @NotNull
+    private LeaderboardIndex getIndex(@NotNull Currency currency) {
+        return this.indexes.computeIfAbsent(currency.getId(), k -> new LeaderboardIndex());
+    }
+
+    /**
+     * Handles balance change made on this server.
+     */
+    public void onBalanceChange(@NotNull CoinsUser user, @NotNull Currency currency, double oldBalance, double newBalance) {
+        if (this.source == LeaderboardSource.DATABASE) {
+            // Keep server total up to date between database refreshes.
+            CompensatedSum total = this.totals.get(currency.getId());
+            if (total != null && !user.isHiddenFromTops()) {
+                total.replace(oldBalance, newBalance);
+            }
+            return;
+        }
+
+        this.updateEntry(user, currency, newBalance);
+    }
+
+    public void updateUser(@NotNull CoinsUser user) {
+        this.currencyRegistry.getCurrencies().forEach(currency -> this.updateEntry(user, currency, user.getBalance(currency)));
+    }
+
+    public void updateEntry(@NotNull CoinsUser user, @NotNull Currency currency, double balance) {
+        // Top entries are refreshed from the database only, there is no full index to keep up to date.
+        if (this.source == LeaderboardSource.DATABASE) return;
+
+        if (this.building) this.buildUpdates.put(user.getId(), user);
+
+        LeaderboardIndex index = this.getIndex(currency);
+
+        if (user.isHiddenFromTops()) {
+            index.remove(user.getId());
+        }
+        else {
+            index.update(user.getId(), user.getName(), balance);
+        }
+        this.changedIndexes.add(currency.getId());
     }
 
     public void hideFromTops(@NotNull Player player) {
         this.plugin.getFoliaScheduler().runAsync(() -> {
             CoinsUser user = this.plugin.getUserManager().getOrFetch(player);
-            user.setHiddenFromTops(player.hasPermission(Perms.HIDE_FROM_TOPS));
+            boolean hidden = player.hasPermission(Perms.HIDE_FROM_TOPS);
+            if (user.isHiddenFromTops() != hidden) {
+                user.setHiddenFromTops(hidden);
+                this.plugin.getUserManager().save(user);
+            }
+            this.updateUser(user);
         });
     }
 
@@ -94,16 +228,14 @@ public class TopManager extends AbstractManager<CoinsEnginePlugin> {
             return true;
         }
 
-        int perPage = Config.TOPS_ENTRIES_PER_PAGE.get();
-
-        List<TopEntry> full = this.getTopEntries(currency);
+        int perPage = Math.max(1, Config.TOPS_ENTRIES_PER_PAGE.get());
 
-        List<List<TopEntry>> split = Lists.split(full, perPage);
-        int pages = split.size();
+        LeaderboardSnapshot snapshot = this.getSnapshot(currency);
+        int pages = snapshot.getPages(perPage);
         int index = Math.max(0, Math.min(pages, page) - 1);
         int realPage = index + 1;
 
-        List<TopEntry> entries = pages > 0 ? split.get(index) : new ArrayList<>();
+        List<TopEntry> entries = snapshot.getPage(realPage, perPage);
 
         boolean hasNextPage = realPage < pages;
         boolean hasPrevPage = index > 0;
@@ -131,26 +263,70 @@ public class TopManager extends AbstractManager<CoinsEnginePlugin> {
         return true;
     }
 
+    /**
+     * @return Read-only view of all top entries of the currency. No copy is made.
+     */
     @NotNull
-    public Map<String, Map<String, TopEntry>> getTopEntriesMap() {
-        return this.topEntries;
+    public List<TopEntry> getTopEntries(@NotNull Currency currency) {
+        return this.getSnapshot(currency).getEntries();
+    }
+
+    /**
+     * @param position Position starting from 1.
+     * @return Top entry at the given position, or null if there is none.
+     */
+    @Nullable
+    public TopEntry getEntry(@NotNull Currency currency, int position) {
+        return this.getSnapshot(currency).getEntry(position);
     }
 
+    /**
+     * @param page Page number starting from 1.
+     * @param size Entries per page.
+     * @return Read-only view of the page entries. No copy is made.
+     */
     @NotNull
-    public List<TopEntry> getTopEntries(@NotNull Currency currency) {
-        return new ArrayList<>(this.topEntries.getOrDefault(currency.getId(), Collections.emptyMap()).values());
+    public List<TopEntry> getPage(@NotNull Currency currency, int page, int size) {
+        return this.getSnapshot(currency).getPage(page, size);
+    }
+
+    /**
+     * @return Player's position starting from 1, or 0 if player is not on the leaderboard.
+     */
+    public int getRank(@NotNull Currency currency, @NotNull UUID playerId) {
+        int rank = this.getSnapshot(currency).getRank(playerId);
+        if (rank == 0 && this.source == LeaderboardSource.INDEX) {
+            // Positions beyond snapshot depth are still available in the full index.
+            LeaderboardIndex index = this.indexes.get(currency.getId());
+            if (index != null) rank = index.getRank(playerId);
+        }
+        return rank;
     }
 
     @Nullable
     public TopEntry getTopEntry(@NotNull Currency currency, @NotNull String name) {
-        return this.topEntries.getOrDefault(currency.getId(), Collections.emptyMap()).get(LowerCase.INTERNAL.apply(name));
+        TopEntry entry = this.getSnapshot(currency).getEntry(name);
+        if (entry == null && this.source == LeaderboardSource.INDEX) {
+            // Positions beyond snapshot depth are still available in the full index.
+            LeaderboardIndex index = this.indexes.get(currency.getId());
+            if (index != null) entry = index.getEntry(name);
+        }
+        return entry;
     }
 
     public double getTotalBalance(@NotNull Currency currency) {
-        return this.getTopEntries(currency).stream().mapToDouble(TopEntry::getBalance).sum();
+        if (this.source == LeaderboardSource.DATABASE) {
+            CompensatedSum total = this.totals.get(currency.getId());
+            return total == null ? 0D : total.get();
+        }
+
+        LeaderboardIndex index = this.indexes.get(currency.getId());
+        return index == null ? this.getSnapshot(currency).getTotal() : index.getTotal();
     }
 
-    public void applyExternalTopEntries(@NotNull String currencyId, @NotNull Map<String, TopEntry> entries) {
-        this.topEntries.put(currencyId, entries);
+    public void applyExternalTopEntries(@NotNull String currencyId, @NotNull Collection<TopEntry> entries) {
+        double total = entries.stream().mapToDouble(TopEntry::getBalance).sum();
+
+        this.snapshots.put(currencyId, LeaderboardSnapshot.of(entries, total));
     }
 }
@@ -6,6 +6,7 @@ import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.jetbrains.annotations.NotNull;
 import su.nightexpress.coinsengine.CoinsEnginePlugin;
+import su.nightexpress.coinsengine.api.event.ChangeBalanceEvent;
 import su.nightexpress.nightcore.manager.AbstractListener;
 
 public class TopsListener extends AbstractListener<CoinsEnginePlugin> {
@@ -26,4 +27,9 @@ public class TopsListener extends AbstractListener<CoinsEnginePlugin> {
     public void onPlayerJoin(PlayerQuitEvent event) {
         this.manager.hideFromTops(event.getPlayer());
     }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBalanceChange(ChangeBalanceEvent event) {
+        this.manager.onBalanceChange(event.getUser(), event.getCurrency(), event.getOldAmount(), event.getNewAmount());
+    }
 }
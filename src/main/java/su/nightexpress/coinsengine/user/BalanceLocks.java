@@ -0,0 +1,65 @@
+package su.nightexpress.coinsengine.user;
+
+import org.jetbrains.annotations.NotNull;
+import su.nightexpress.coinsengine.api.currency.Currency;
+
+import java.util.UUID;
+
+/**
+ * Striped locks for balance edits, shared by all users. A stripe is picked by user ID and currency slot, so edits of
+ * different users and currencies rarely wait for each other, and memory does not grow with the amount of users.
+ * Locks are plain monitors: taking an uncontended one is nearly free.
+ */
+public final class BalanceLocks {
+
+    private static final int STRIPES = 256; // Must be a power of two.
+
+    private static final Object[] LOCKS = new Object[STRIPES];
+
+    static {
+        for (int index = 0; index < STRIPES; index++) {
+            LOCKS[index] = new Object();
+        }
+    }
+
+    private BalanceLocks() {}
+
+    /**
+     * @return Stripe index of the user's balance. Locks must be taken in ascending stripe order when several are needed.
+     */
+    public static int stripeOf(@NotNull UUID playerId, @NotNull Currency currency) {
+        int hash = playerId.hashCode() * 31 + currency.getSlot();
+        hash ^= (hash >>> 16);
+        return hash & (STRIPES - 1);
+    }
+
+    @NotNull
+    public static Object lockOf(@NotNull UUID playerId, @NotNull Currency currency) {
+        return LOCKS[stripeOf(playerId, currency)];
+    }
+
+    @NotNull
+    public static Object lockAt(int stripe) {
+        return LOCKS[stripe];
+    }
+
+    /**
+     * Runs the action with all given stripes locked.
+     *
+     * @param stripes Stripe indexes in ascending order, without duplicates.
+     */
+    public static void runLocked(int[] stripes, @NotNull Runnable action) {
+        runLocked(stripes, 0, action);
+    }
+
+    private static void runLocked(int[] stripes, int index, @NotNull Runnable action) {
+        if (index == stripes.length) {
+            action.run();
+            return;
+        }
+
+        synchronized (LOCKS[stripes[index]]) {
+            runLocked(stripes, index + 1, action);
+        }
+    }
+}
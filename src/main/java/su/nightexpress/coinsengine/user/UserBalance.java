@@ -2,37 +2,143 @@ package su.nightexpress.coinsengine.user;
 
 import org.jetbrains.annotations.NotNull;
 import su.nightexpress.coinsengine.api.currency.Currency;
+import su.nightexpress.coinsengine.currency.CurrencyRegistry;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+import java.util.function.DoubleUnaryOperator;
 
+/**
+ * Balances of a single user, indexed by currency slot. Every change is an atomic compare-and-set on the slot, so
+ * concurrent changes from different threads are never lost, and uncontended changes take no locks.
+ * Balances are stored as raw double bits, so they can be compared and swapped as longs. When the array grows for new
+ * currencies, old slots are swapped to the MOVED marker, so a late write to the old array fails and is retried.
+ */
 public class UserBalance {
 
-    private final Map<String, Double> balanceMap;
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final long ABSENT = Double.doubleToRawLongBits(Double.NaN); // Marks slots with no balance set.
+    private static final long MOVED  = 0x7FF0_0000_0000_0001L; // Marks slots copied to a bigger array. A NaN never stored as balance.
+
+    private final Object resizeLock = new Object();
+
+    private volatile long[] balances; // Raw double bits indexed by currency slot, see CurrencyRegistry#slotOf.
 
     public UserBalance() {
-        this(new HashMap<>());
+        this.balances = createArray(CurrencyRegistry.getSlotCount());
     }
 
     public UserBalance(@NotNull Map<String, Double> balanceMap) {
-        this.balanceMap = balanceMap;
+        this();
+        balanceMap.forEach(this::set);
+    }
+
+    @NotNull
+    private static long[] createArray(int length) {
+        long[] array = new long[Math.max(1, length)];
+        Arrays.fill(array, ABSENT);
+        return array;
+    }
+
+    private static long toBits(double value) {
+        return value != value ? ABSENT : Double.doubleToRawLongBits(value);
+    }
+
+    private static double toBalance(long bits) {
+        return bits == ABSENT ? 0D : Double.longBitsToDouble(bits);
+    }
+
+    /**
+     * Waits until the array resize in progress is finished.
+     */
+    private void awaitResize() {
+        synchronized (this.resizeLock) {
+            // Resize publishes the new array before releasing the lock, nothing to do here.
+        }
+    }
+
+    @NotNull
+    private long[] ensureCapacity(int slot) {
+        long[] array = this.balances;
+        if (slot < array.length) return array;
+
+        synchronized (this.resizeLock) {
+            array = this.balances;
+            if (slot < array.length) return array;
+
+            long[] grown = createArray(Math.max(slot + 1, CurrencyRegistry.getSlotCount()));
+            for (int index = 0; index < array.length; index++) {
+                grown[index] = (long) SLOTS.getAndSet(array, index, MOVED);
+            }
+
+            this.balances = grown;
+            return grown;
+        }
+    }
+
+    private long readSlot(int slot) {
+        while (true) {
+            long[] array = this.balances;
+            if (slot < 0 || slot >= array.length) return ABSENT;
+
+            long bits = (long) SLOTS.getVolatile(array, slot);
+            if (bits != MOVED) return bits;
+
+            this.awaitResize();
+        }
+    }
+
+    /**
+     * Atomically replaces balance of the slot with the function result. The function may be called more than once
+     * if the balance was changed by another thread meanwhile, so it must have no side effects.
+     *
+     * @return New balance.
+     */
+    private double updateSlot(int slot, @NotNull DoubleUnaryOperator function) {
+        while (true) {
+            long[] array = this.ensureCapacity(slot);
+            long bits = (long) SLOTS.getVolatile(array, slot);
+            if (bits == MOVED) {
+                this.awaitResize();
+                continue;
+            }
+
+            double value = function.applyAsDouble(toBalance(bits));
+            if (SLOTS.compareAndSet(array, slot, bits, toBits(value))) return value;
+        }
     }
 
+    /**
+     * Returns a live view of balances keyed by currency ID. Changes made through the view are written to this balance.
+     *
+     * @return Map view of the balances.
+     */
     @NotNull
+    @Deprecated
     public Map<String, Double> getBalanceMap() {
-        return this.balanceMap;
+        return new MapView();
     }
 
     public void clear() {
-        this.balanceMap.clear();
+        for (int slot = 0; slot < this.balances.length; slot++) {
+            this.clearSlot(slot);
+        }
     }
 
     public void clear(@NotNull Currency currency) {
-        this.clear(currency.getId());
+        this.clearSlot(currency.getSlot());
     }
 
     public void clear(@NotNull String currencyId) {
-        this.balanceMap.remove(currencyId);
+        this.clearSlot(CurrencyRegistry.findSlot(currencyId));
+    }
+
+    private void clearSlot(int slot) {
+        if (slot < 0 || slot >= this.balances.length) return;
+
+        this.updateSlot(slot, value -> Double.NaN);
     }
 
     public boolean has(@NotNull Currency currency, double amount) {
@@ -40,34 +146,173 @@ public class UserBalance {
     }
 
     public double get(@NotNull Currency currency) {
-        return this.get(currency.getId());
+        return this.getSlot(currency.getSlot());
     }
 
     public double get(@NotNull String currencyId) {
-        return this.balanceMap.getOrDefault(currencyId, 0D);
+        return this.getSlot(CurrencyRegistry.findSlot(currencyId));
     }
 
+    private double getSlot(int slot) {
+        return toBalance(this.readSlot(slot));
+    }
+
+    /**
+     * Adds the amount. Unlike {@link #update(Currency, DoubleUnaryOperator)}, result is not floored or limited.
+     */
     public void add(@NotNull Currency currency, double amount) {
-        this.add(currency.getId(), amount);
+        this.updateSlot(currency.getSlot(), value -> value + Math.abs(amount));
     }
 
     public void add(@NotNull String currencyId, double amount) {
-        this.set(currencyId, this.get(currencyId) + Math.abs(amount));
+        this.updateSlot(CurrencyRegistry.slotOf(currencyId), value -> value + Math.abs(amount));
     }
 
+    /**
+     * Removes the amount. Unlike {@link #update(Currency, DoubleUnaryOperator)}, result is not floored or limited.
+     */
     public void remove(@NotNull Currency currency, double amount) {
-        this.remove(currency.getId(), amount);
+        this.updateSlot(currency.getSlot(), value -> value - Math.abs(amount));
     }
 
     public void remove(@NotNull String currencyId, double amount) {
-        this.set(currencyId, this.get(currencyId) - Math.abs(amount));
+        this.updateSlot(CurrencyRegistry.slotOf(currencyId), value -> value - Math.abs(amount));
     }
 
     public void set(@NotNull Currency currency, double amount) {
-        this.set(currency.getId(), currency.floorAndLimit(amount));
+        double limited = currency.floorAndLimit(amount);
+        this.updateSlot(currency.getSlot(), value -> limited);
     }
 
     public void set(@NotNull String currencyId, double amount) {
-        this.balanceMap.put(currencyId, amount);
+        this.updateSlot(CurrencyRegistry.slotOf(currencyId), value -> amount);
+    }
+
+    /**
+     * Atomically replaces the balance with the function result, floored and limited by the currency.
+     * The function may be called more than once under contention, so it must have no side effects.
+     *
+     * @param currency Currency to update balance of.
+     * @param function Function of the current balance.
+     * @return New balance.
+     */
+    public double update(@NotNull Currency currency, @NotNull DoubleUnaryOperator function) {
+        return this.updateSlot(currency.getSlot(), value -> currency.floorAndLimit(function.applyAsDouble(value)));
+    }
+
+    /**
+     * Sets the balance to the new value only if the current balance equals the expected one.
+     *
+     * @param currency Currency to set balance of.
+     * @param expected Expected current balance.
+     * @param value New balance. Floored and limited by the currency.
+     * @return True if balance was changed, false if it was different from the expected.
+     */
+    public boolean compareAndSet(@NotNull Currency currency, double expected, double value) {
+        int slot = currency.getSlot();
+        long update = toBits(currency.floorAndLimit(value));
+
+        while (true) {
+            long[] array = this.ensureCapacity(slot);
+            long bits = (long) SLOTS.getVolatile(array, slot);
+            if (bits == MOVED) {
+                this.awaitResize();
+                continue;
+            }
+
+            if (toBalance(bits) != expected) return false;
+            if (SLOTS.compareAndSet(array, slot, bits, update)) return true;
+        }
+    }
+
+    private class MapView extends AbstractMap<String, Double> {
+
+        @Override
+        public Double get(Object key) {
+            if (!(key instanceof String id)) return null;
+
+            long bits = readSlot(CurrencyRegistry.findSlot(id));
+            return bits == ABSENT ? null : toBalance(bits);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return this.get(key) != null;
+        }
+
+        @Override
+        public Double put(String key, Double value) {
+            Double old = this.get(key);
+            set(key, value);
+            return old;
+        }
+
+        @Override
+        public Double remove(Object key) {
+            Double old = this.get(key);
+            if (old != null) UserBalance.this.clear((String) key);
+            return old;
+        }
+
+        @Override
+        public void clear() {
+            UserBalance.this.clear();
+        }
+
+        @NotNull
+        @Override
+        public Set<Entry<String, Double>> entrySet() {
+            return new AbstractSet<>() {
+
+                @NotNull
+                @Override
+                public Iterator<Entry<String, Double>> iterator() {
+                    return new Iterator<>() {
+
+                        private int next = this.seek(0);
+                        private int last = -1;
+
+                        private int seek(int from) {
+                            for (int slot = from; slot < balances.length; slot++) {
+                                if (readSlot(slot) != ABSENT) return slot;
+                            }
+                            return balances.length;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return this.next < balances.length;
+                        }
+
+                        @Override
+                        public Entry<String, Double> next() {
+                            if (!this.hasNext()) throw new NoSuchElementException();
+
+                            this.last = this.next;
+                            this.next = this.seek(this.next + 1);
+
+                            return new SimpleImmutableEntry<>(CurrencyRegistry.getSlotId(this.last), toBalance(readSlot(this.last)));
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (this.last < 0) throw new IllegalStateException();
+
+                            clearSlot(this.last);
+                            this.last = -1;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    int size = 0;
+                    for (int slot = 0; slot < balances.length; slot++) {
+                        if (readSlot(slot) != ABSENT) size++;
+                    }
+                    return size;
+                }
+            };
+        }
     }
 }
@@ -3,22 +3,34 @@ package su.nightexpress.coinsengine.user;
 import org.jetbrains.annotations.NotNull;
 import su.nightexpress.coinsengine.CoinsEnginePlugin;
 import su.nightexpress.coinsengine.api.currency.Currency;
+import su.nightexpress.coinsengine.config.Config;
 import su.nightexpress.coinsengine.currency.CurrencyRegistry;
+import su.nightexpress.coinsengine.data.BalanceFlusher;
+import su.nightexpress.coinsengine.data.BalanceSnapshotCache.ReadOutcome;
 import su.nightexpress.coinsengine.data.DataHandler;
-import su.nightexpress.coinsengine.data.DataQueries;
+import su.nightexpress.coinsengine.data.impl.BalanceRow;
 import su.nightexpress.coinsengine.data.impl.CoinsUser;
 import su.nightexpress.coinsengine.data.impl.CurrencySettings;
+import su.nightexpress.coinsengine.sync.RedisSyncManager;
 import su.nightexpress.nightcore.db.AbstractUserManager;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 public class UserManager extends AbstractUserManager<CoinsEnginePlugin, CoinsUser> {
 
     private final DataHandler dataHandler;
     private final CurrencyRegistry registry;
 
+    private BalanceFlusher flusher;
+
     public UserManager(@NotNull CoinsEnginePlugin plugin, @NotNull CurrencyRegistry registry, @NotNull DataHandler dataHandler) {
         super(plugin, dataHandler);
         this.dataHandler = dataHandler;
@@ -29,10 +41,127 @@ public class UserManager extends AbstractUserManager<CoinsEnginePlugin, CoinsUse
     protected void onLoad() {
         super.onLoad();
 
-        this.dataHandler.addTableSync(this.dataHandler.getUsersTable(), resultSet -> {
-            CoinsUser user = DataQueries.USER_LOADER.apply(resultSet);
-            this.handleSynchronization(user);
+        // Changed rows are read by DataHandler#synchronizeChanges, no full table sync.
+
+        if (Config.isWriteBehindEnabled()) {
+            this.flusher = new BalanceFlusher(this.plugin, this.dataHandler, Config.DATA_WRITE_BEHIND_BATCH_SIZE.get());
+            this.addAsyncTask(this.flusher::flush, Config.DATA_WRITE_BEHIND_FLUSH_INTERVAL.get());
+        }
+
+        long snapshotKeepTime = TimeUnit.SECONDS.toMillis(Config.INTEGRATION_VAULT_SNAPSHOT_KEEP_TIME.get());
+        this.addAsyncTask(() -> {
+            this.plugin.getSnapshotCache().purge(snapshotKeepTime);
+            this.reportBalanceReads();
+        }, 60);
+    }
+
+    private void reportBalanceReads() {
+        Map<ReadOutcome, Long> counts = this.plugin.getSnapshotCache().pollCounts();
+        if (counts.values().stream().allMatch(count -> count == 0L)) return;
+
+        String text = "Vault balance reads in the last minute: " + counts.entrySet().stream()
+            .map(entry -> entry.getKey().name() + "=" + entry.getValue())
+            .collect(Collectors.joining(", "));
+
+        // Blocking loads return correct balances, so only misses that returned a guess are worth attention.
+        long guesses = counts.get(ReadOutcome.MISS_ZERO) + counts.get(ReadOutcome.MISS_LAST_KNOWN);
+        if (guesses > 0) {
+            this.plugin.info(text);
+        }
+        else this.plugin.debug(text);
+    }
+
+    @Override
+    protected void onShutdown() {
+        if (this.flusher != null) {
+            this.flusher.flush();
+            this.flusher = null;
+        }
+
+        super.onShutdown();
+    }
+
+    @Override
+    protected void onLoad(@NotNull CoinsUser user) {
+        super.onLoad(user);
+
+        // Database copy may be behind the Redis store, so load the latest balances from it.
+        this.plugin.getRedisSyncManager().flatMap(RedisSyncManager::getBalanceStore).ifPresent(store -> this.plugin.runTaskAsync(() -> {
+            Map<String, Double> balances;
+            try {
+                balances = store.getBalances(user.getId());
+            }
+            catch (Exception exception) {
+                this.plugin.error("Could not load balances of " + user.getName() + " from Redis store: " + exception.getMessage());
+                return;
+            }
+            if (balances.isEmpty()) return;
+
+            this.plugin.runNextTick(() -> {
+                balances.forEach((currencyId, balance) -> {
+                    Currency currency = this.registry.getById(currencyId);
+                    if (currency == null || user.isDirty(currency)) return;
+
+                    user.getBalance().set(currency, balance); // Bypass balance event call.
+                });
+                this.plugin.getTopManager().ifPresent(topManager -> topManager.updateUser(user));
+            });
+        }));
+    }
+
+    @Override
+    protected void onUnload(@NotNull CoinsUser user) {
+        super.onUnload(user);
+        this.plugin.getSnapshotCache().updateFromUser(user, this.registry.getCurrencies()); // Last known balance for Vault reads.
+        this.plugin.getRedisSyncManager().ifPresent(sync -> sync.getReplicationState().forget(user.getId()));
+    }
+
+    @NotNull
+    public Optional<BalanceFlusher> getFlusher() {
+        return Optional.ofNullable(this.flusher);
+    }
+
+    @Override
+    public void save(@NotNull CoinsUser user) {
+        if (this.flusher == null) {
+            super.save(user);
+            return;
+        }
+
+        this.flusher.enqueue(user);
+    }
+
+    /**
+     * Gets loaded users and loads the rest from the database with a single query per chunk of IDs. Loaded users are
+     * cached temporarily, same as by {@link #getOrFetch(UUID)}. Performs the query on the calling thread.
+     *
+     * @param playerIds Player IDs.
+     * @return Users by player ID. Players without data are missing.
+     */
+    @NotNull
+    public Map<UUID, CoinsUser> getOrFetch(@NotNull Collection<UUID> playerIds) {
+        Map<UUID, CoinsUser> users = new HashMap<>();
+        Set<UUID> missing = new HashSet<>();
+
+        playerIds.forEach(playerId -> {
+            CoinsUser user = this.getLoaded(playerId);
+            if (user != null) users.put(playerId, user);
+            else missing.add(playerId);
         });
+        if (missing.isEmpty()) return users;
+
+        for (CoinsUser fetched : this.dataHandler.getUsers(missing)) {
+            CoinsUser loaded = this.getLoaded(fetched.getId()); // Could be loaded while the query was running.
+            if (loaded != null) {
+                users.put(loaded.getId(), loaded);
+                continue;
+            }
+
+            this.cacheTemporary(fetched);
+            users.put(fetched.getId(), fetched);
+        }
+
+        return users;
     }
 
     @Override
@@ -49,15 +178,18 @@ public class UserManager extends AbstractUserManager<CoinsEnginePlugin, CoinsUse
         return new CoinsUser(uuid, name, dateCreated, dateCreated, balance, settingsMap, hiddenFromTops);
     }
 
-    public void handleSynchronization(@NotNull CoinsUser fresh) {
-        CoinsUser user = this.getLoaded(fresh.getId());
+    public void handleSynchronization(@NotNull BalanceRow fresh) {
+        CoinsUser user = this.getLoaded(fresh.playerId());
         if (user == null) return;
 
         for (Currency currency : this.registry.getCurrencies()) {
             if (!currency.isSynchronizable()) continue;
+            if (user.isDirty(currency)) continue; // Local changes are not written yet, keep them.
 
-            double balance = fresh.getBalance(currency);
+            double balance = fresh.balance().get(currency);
             user.getBalance().set(currency, balance); // Bypass balance event call.
         }
+
+        this.plugin.getTopManager().ifPresent(topManager -> topManager.updateUser(user));
     }
 }
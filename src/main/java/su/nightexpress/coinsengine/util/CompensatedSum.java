@@ -0,0 +1,58 @@
+package su.nightexpress.coinsengine.util;
+
+/**
+ * Running sum of doubles using Neumaier's compensated summation, so adding and removing large balances many times
+ * does not accumulate rounding error. Writes are synchronized, reads are lock-free.
+ */
+public final class CompensatedSum {
+
+    private double sum;
+    private double compensation;
+
+    private volatile double value;
+
+    public CompensatedSum() {
+        this(0D);
+    }
+
+    public CompensatedSum(double initial) {
+        this.reset(initial);
+    }
+
+    public synchronized void add(double amount) {
+        this.accumulate(amount);
+        this.value = this.sum + this.compensation;
+    }
+
+    /**
+     * Replaces one value with another in a single step, so readers never see only half of the change.
+     */
+    public synchronized void replace(double oldAmount, double newAmount) {
+        this.accumulate(newAmount);
+        this.accumulate(-oldAmount);
+        this.value = this.sum + this.compensation;
+    }
+
+    private void accumulate(double amount) {
+        double total = this.sum + amount;
+
+        if (Math.abs(this.sum) >= Math.abs(amount)) {
+            this.compensation += (this.sum - total) + amount;
+        }
+        else {
+            this.compensation += (amount - total) + this.sum;
+        }
+
+        this.sum = total;
+    }
+
+    public synchronized void reset(double initial) {
+        this.sum = initial;
+        this.compensation = 0D;
+        this.value = initial;
+    }
+
+    public double get() {
+        return this.value;
+    }
+}